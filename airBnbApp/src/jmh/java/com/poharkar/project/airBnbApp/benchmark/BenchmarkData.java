@@ -0,0 +1,153 @@
+package com.poharkar.project.airBnbApp.benchmark;
+
+import com.poharkar.project.airBnbApp.entity.*;
+import com.poharkar.project.airBnbApp.entity.enums.BookingStatus;
+import com.poharkar.project.airBnbApp.entity.enums.Role;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// Seeded generators for the benchmarks, the same seed always gives the same data
+public class BenchmarkData {
+
+    public static final long SEED=42;
+    public static final List<String> CITIES=List.of("Mumbai","Delhi","Bangalore","Goa","Pune","Jaipur");
+
+    private final Random random;
+    private long nextId=1;
+
+    public BenchmarkData() {
+        this(SEED);
+    }
+
+    public BenchmarkData(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public Hotel hotel(){
+        Hotel hotel=new Hotel();
+        hotel.setId(nextId++);
+        hotel.setName("Hotel "+hotel.getId());
+        hotel.setCity(CITIES.get(random.nextInt(CITIES.size())));
+        hotel.setPhotos(new String[]{"https://img.example.com/"+hotel.getId()+"/1.jpg","https://img.example.com/"+hotel.getId()+"/2.jpg"});
+        hotel.setAmenities(new String[]{"wifi","pool","parking"});
+        hotel.setActive(true);
+        hotel.setRating(1+random.nextInt(40)/10.0);
+        hotel.setCreatedAt(LocalDateTime.of(2025,1,1,10,0));
+        hotel.setUpdatedAt(LocalDateTime.of(2025,6,1,10,0));
+
+        HotelContactInfo contactInfo=new HotelContactInfo();
+        contactInfo.setAddress(hotel.getId()+" Main Road");
+        contactInfo.setPhoneNumber("+91 98765 43210");
+        contactInfo.setEmail("hotel"+hotel.getId()+"@example.com");
+        contactInfo.setLocation(hotel.getCity());
+        hotel.setContactInfo(contactInfo);
+        return hotel;
+    }
+
+    public Room room(Hotel hotel){
+        Room room=new Room();
+        room.setId(nextId++);
+        room.setHotel(hotel);
+        room.setType(random.nextBoolean()? "Deluxe" : "Suite");
+        room.setBasePrice(BigDecimal.valueOf(1500+random.nextInt(8500),0).setScale(2));
+        room.setTotalCount(5+random.nextInt(20));
+        room.setCapacity(2+random.nextInt(3));
+        return room;
+    }
+
+    // One inventory row per room and day starting at startDate, with bookings spread over the calendar
+    public List<Inventory> inventories(Hotel hotel, List<Room> rooms, LocalDate startDate, int days){
+        List<Inventory> inventoryList=new ArrayList<>(rooms.size()*days);
+        for(Room room: rooms){
+            for(int day=0;day<days;day++){
+                int bookedCount=random.nextInt(10)==0? room.getTotalCount() : random.nextInt(room.getTotalCount()+1);
+                inventoryList.add(Inventory.builder()
+                        .id(nextId++)
+                        .hotel(hotel)
+                        .room(room)
+                        .date(startDate.plusDays(day))
+                        .bookedCount(bookedCount)
+                        .reservedCount(random.nextInt(room.getTotalCount()-bookedCount+1))
+                        .totalCount(room.getTotalCount())
+                        .surgeFactor(BigDecimal.valueOf(100+random.nextInt(100),2))
+                        .price(room.getBasePrice())
+                        .city(hotel.getCity())
+                        .closed(random.nextInt(50)==0)
+                        .createdAt(LocalDateTime.of(2025,1,1,10,0))
+                        .updatedAt(LocalDateTime.of(2025,6,1,10,0))
+                        .build());
+            }
+        }
+        return inventoryList;
+    }
+
+    // A year of inventory for a hotel with the given number of rooms
+    public List<Inventory> hotelInventories(int roomsCount, LocalDate startDate, int days){
+        Hotel hotel=hotel();
+        List<Room> rooms=new ArrayList<>();
+        for(int i=0;i<roomsCount;i++){
+            rooms.add(room(hotel));
+        }
+        return inventories(hotel,rooms,startDate,days);
+    }
+
+    public User user(){
+        User user=new User();
+        user.setId(nextId++);
+        user.setEmail("user"+user.getId()+"@example.com");
+        user.setName("User "+user.getId());
+        user.setRoles(Set.of(Role.GUEST));
+        return user;
+    }
+
+    public Booking booking(User user){
+        Hotel hotel=hotel();
+        Room room=room(hotel);
+        LocalDate checkInDate=LocalDate.of(2026,1,1).plusDays(random.nextInt(300));
+
+        Set<Guest> guests=new HashSet<>();
+        for(int i=0;i<2;i++){
+            Guest guest=new Guest();
+            guest.setId(nextId++);
+            guest.setName("Guest "+guest.getId());
+            guest.setDateOfBirth(LocalDate.of(1970+random.nextInt(35),1+random.nextInt(12),1+random.nextInt(28)));
+            guest.setUser(user);
+            guests.add(guest);
+        }
+
+        return Booking.builder()
+                .id(nextId++)
+                .hotel(hotel)
+                .room(room)
+                .user(user)
+                .roomsCount(1+random.nextInt(3))
+                .checkInDate(checkInDate)
+                .checkOutDate(checkInDate.plusDays(1+random.nextInt(6)))
+                .createdAt(LocalDateTime.of(2025,12,1,10,0))
+                .updatedAt(LocalDateTime.of(2025,12,1,10,5))
+                .bookingStatus(BookingStatus.CONFIRMED)
+                .guests(guests)
+                .amount(BigDecimal.valueOf(12345,2))
+                .build();
+    }
+
+    // Holiday lines for the HolidayCalendar, every city gets about one holiday a fortnight
+    public List<String> holidayLines(LocalDate startDate, int days){
+        List<String> lines=new ArrayList<>();
+        for(int day=0;day<days;day++){
+            for(String city: CITIES){
+                if(random.nextInt(14)==0){
+                    lines.add(city+","+startDate.plusDays(day));
+                }
+            }
+        }
+        return lines;
+    }
+}
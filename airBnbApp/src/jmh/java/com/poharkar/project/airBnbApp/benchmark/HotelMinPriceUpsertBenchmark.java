@@ -0,0 +1,208 @@
+package com.poharkar.project.airBnbApp.benchmark;
+
+import com.poharkar.project.airBnbApp.entity.Hotel;
+import com.poharkar.project.airBnbApp.entity.HotelMinPrice;
+import com.poharkar.project.airBnbApp.entity.Inventory;
+import com.poharkar.project.airBnbApp.entity.Room;
+import com.poharkar.project.airBnbApp.entity.User;
+import com.poharkar.project.airBnbApp.entity.enums.Role;
+import com.poharkar.project.airBnbApp.repository.HotelMinPriceRepository;
+import com.poharkar.project.airBnbApp.repository.InventoryRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.persistence.autoconfigure.EntityScan;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// The min price step of the repricing job for every hotel, one hotel after the other, each in its own transaction.
+// Both modes first load the hotel's inventory for the year, like the job does to reprice it:
+//  UPSERT    upsertHotelMinPrices, one aggregate INSERT ... ON CONFLICT per hotel
+//  PER_DATE  the replaced code, MIN(price) per date in memory, one HotelMinPrice SELECT per date and a row-by-row saveAll
+// One invocation is the whole sweep, the iteration teardown prints the statements per hotel from the Hibernate statistics.
+// Runs against -Dbenchmark.postgres.url (pass it with -Djmh.options="-jvmArgsAppend -Dbenchmark.postgres.url=...")
+// or against a container, the schema is created and dropped by Hibernate.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HotelMinPriceUpsertBenchmark {
+
+    private static final int DAYS=366;
+    private static final int ROOMS_PER_HOTEL=2;
+    private static final LocalDate START_DATE=LocalDate.of(2031,1,1);
+    private static final LocalDate END_DATE=START_DATE.plusDays(DAYS-1);
+
+    @Param({"UPSERT", "PER_DATE"})
+    private String mode;
+
+    @Param({"1000"})
+    private int hotelsCount;
+
+    private PostgreSQLContainer postgres;
+    private ConfigurableApplicationContext context;
+    private InventoryRepository inventoryRepository;
+    private HotelMinPriceRepository hotelMinPriceRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+    private Statistics statistics;
+    private List<Long> hotelIds;
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Inventory.class)
+    @EnableJpaRepositories(basePackageClasses = InventoryRepository.class)
+    static class RepositoryConfiguration {
+    }
+
+    @Setup
+    public void setup(){
+        String url=System.getProperty("benchmark.postgres.url");
+        String username=System.getProperty("benchmark.postgres.username","postgres");
+        String password=System.getProperty("benchmark.postgres.password","");
+        if(url==null){
+            postgres=new PostgreSQLContainer("postgres:16-alpine");
+            postgres.start();
+            url=postgres.getJdbcUrl();
+            username=postgres.getUsername();
+            password=postgres.getPassword();
+        }
+
+        // repositories only, none of the application's services, schedulers or security
+        context=new SpringApplicationBuilder(RepositoryConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url="+url,
+                        "spring.datasource.username="+username,
+                        "spring.datasource.password="+password,
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.properties.hibernate.generate_statistics=true",
+                        "spring.flyway.enabled=false")
+                .run();
+        inventoryRepository=context.getBean(InventoryRepository.class);
+        hotelMinPriceRepository=context.getBean(HotelMinPriceRepository.class);
+        entityManager=context.getBean(EntityManager.class);
+        transactionTemplate=context.getBean(TransactionTemplate.class);
+        statistics=context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+        hotelIds=transactionTemplate.execute(status->{
+            User owner=new User();
+            owner.setEmail("owner@example.com");
+            owner.setPassword("password");
+            owner.setRoles(Set.of(Role.HOTEL_MANAGER));
+            entityManager.persist(owner);
+
+            List<Long> ids=new ArrayList<>();
+            for(int i=0;i<hotelsCount;i++){
+                Hotel hotel=new Hotel();
+                hotel.setName("Hotel "+i);
+                hotel.setCity("City "+i%20);
+                hotel.setActive(true);
+                hotel.setOwner(owner);
+                entityManager.persist(hotel);
+                ids.add(hotel.getId());
+
+                for(int r=0;r<ROOMS_PER_HOTEL;r++){
+                    Room room=new Room();
+                    room.setHotel(hotel);
+                    room.setType("Room "+r);
+                    room.setBasePrice(BigDecimal.valueOf(1000+100L*r));
+                    room.setTotalCount(5);
+                    room.setCapacity(2);
+                    entityManager.persist(room);
+                }
+            }
+            entityManager.flush();
+
+            // a year of inventory per room in one statement, prices differ between rooms and days
+            entityManager.createNativeQuery("""
+                        INSERT INTO inventory (hotel_id, room_id, date, booked_count, reserved_count, total_count,
+                            surge_factor, price, city, closed, created_at, updated_at)
+                        SELECT r.hotel_id, r.id, CAST(d AS date), 0, 0, r.total_count, 1, r.base_price + (r.id * 7 + EXTRACT(DOY FROM d)) % 50,
+                            h.city, false, now(), now()
+                        FROM room r
+                        JOIN hotel h ON h.id = r.hotel_id
+                        CROSS JOIN generate_series(CAST(:startDate AS date), CAST(:endDate AS date), INTERVAL '1 day') d
+                    """)
+                    .setParameter("startDate",START_DATE)
+                    .setParameter("endDate",END_DATE)
+                    .executeUpdate();
+            return ids;
+        });
+    }
+
+    @TearDown
+    public void tearDown(){
+        context.close();
+        if(postgres!=null){
+            postgres.stop();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clearStatistics(){
+        statistics.clear();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printStatementsPerHotel(){
+        System.out.printf("%s: %.1f statements per hotel%n",mode,(double) statistics.getPrepareStatementCount()/hotelIds.size());
+    }
+
+    @Benchmark
+    public int updateMinPrices(){
+        int updatedCount=0;
+        for(Long hotelId: hotelIds){
+            updatedCount+=transactionTemplate.execute(status->{
+                Hotel hotel=entityManager.getReference(Hotel.class,hotelId);
+                List<Inventory> inventoryList=inventoryRepository.findByHotelAndDateBetween(hotel,START_DATE,END_DATE);
+                if(mode.equals("UPSERT")){
+                    return hotelMinPriceRepository.upsertHotelMinPrices(hotelId,START_DATE,END_DATE);
+                }
+                return updateMinPricesPerDate(hotel,inventoryList);
+            });
+        }
+        return updatedCount;
+    }
+
+    // PricingUpdateService.updateHotelMinPrice before the upsert
+    private int updateMinPricesPerDate(Hotel hotel, List<Inventory> inventoryList){
+        Map<LocalDate, BigDecimal> dailyMinPrices=inventoryList.stream()
+                .collect(Collectors.toMap(Inventory::getDate,Inventory::getPrice,
+                        (price,other)->Comparator.<BigDecimal>naturalOrder().compare(price,other)<=0? price : other));
+
+        List<HotelMinPrice> hotelPrices=new ArrayList<>();
+        dailyMinPrices.forEach((date,price)->{
+            HotelMinPrice hotelPrice=entityManager.createQuery(
+                            "SELECT m FROM HotelMinPrice m WHERE m.hotel = :hotel AND m.date = :date",HotelMinPrice.class)
+                    .setParameter("hotel",hotel)
+                    .setParameter("date",date)
+                    .getResultStream().findFirst()
+                    .orElse(new HotelMinPrice(hotel,date));
+            hotelPrice.setPrice(price);
+            hotelPrices.add(hotelPrice);
+        });
+        hotelMinPriceRepository.saveAll(hotelPrices);
+        return hotelPrices.size();
+    }
+}
@@ -0,0 +1,93 @@
+package com.poharkar.project.airBnbApp.benchmark;
+
+import com.poharkar.project.airBnbApp.dto.InventoryAvailabilityDto;
+import com.poharkar.project.airBnbApp.entity.Hotel;
+import com.poharkar.project.airBnbApp.entity.Inventory;
+import com.poharkar.project.airBnbApp.entity.Room;
+import com.poharkar.project.airBnbApp.repository.InventoryRepository;
+import com.poharkar.project.airBnbApp.service.InventoryLedger;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Booking admission through InventoryLedger under contention, all threads on one hot room or spread over many rooms.
+// Measures the striped locks alone, InventoryReservationBenchmark compares the ledger with the Postgres row locks.
+// Every attempt runs like a booking transaction that rolls back, so the ledger gives the rooms back
+// through its afterCompletion hook and the calendar never fills up.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class InventoryLedgerBenchmark {
+
+    @Param({"1", "64"})
+    private int roomsCount;
+
+    @Param({"64"})
+    private int lockStripes;
+
+    private InventoryLedger inventoryLedger;
+    private LocalDate today;
+
+    @Setup
+    public void setup(){
+        BenchmarkData data=new BenchmarkData();
+        today=LocalDate.now();
+        Hotel hotel=data.hotel();
+        Map<Long, List<InventoryAvailabilityDto>> calendars=new HashMap<>();
+        for(long roomId=1;roomId<=roomsCount;roomId++){
+            Room room=data.room(hotel);
+            room.setId(roomId);
+            List<Inventory> inventoryList=data.inventories(hotel,List.of(room),today,365);
+            // plenty of free rooms, so admission is decided by the full check and not by a sold out night
+            calendars.put(roomId,inventoryList.stream()
+                    .map(inventory->new InventoryAvailabilityDto(room.getId(),hotel.getId(),inventory.getDate(),1_000_000,false))
+                    .toList());
+        }
+
+        // the ledger only reads a room's calendar once, the rest of the repository is never called
+        InventoryRepository inventoryRepository=(InventoryRepository) Proxy.newProxyInstance(
+                InventoryRepository.class.getClassLoader(),new Class<?>[]{InventoryRepository.class},
+                (proxy,method,args)->{
+                    if(method.getName().equals("findAvailabilityByRoomOrderByDate")){
+                        return calendars.get((Long) args[0]);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+        inventoryLedger=new InventoryLedger(inventoryRepository);
+        ReflectionTestUtils.setField(inventoryLedger,"enabled",true);
+        ReflectionTestUtils.setField(inventoryLedger,"lockStripes",lockStripes);
+        ReflectionTestUtils.invokeMethod(inventoryLedger,"initLocks");
+    }
+
+    @Benchmark
+    public boolean reserveAndRollBack(){
+        ThreadLocalRandom random=ThreadLocalRandom.current();
+        long roomId=1+random.nextInt(roomsCount);
+        LocalDate checkInDate=today.plusDays(random.nextInt(300));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try{
+            boolean reserved=inventoryLedger.tryReserve(roomId,checkInDate,checkInDate.plusDays(3),1);
+            for(TransactionSynchronization synchronization: TransactionSynchronizationManager.getSynchronizations()){
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+            return reserved;
+        }finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
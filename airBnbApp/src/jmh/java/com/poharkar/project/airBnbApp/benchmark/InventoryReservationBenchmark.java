@@ -0,0 +1,161 @@
+package com.poharkar.project.airBnbApp.benchmark;
+
+import com.poharkar.project.airBnbApp.entity.Hotel;
+import com.poharkar.project.airBnbApp.entity.Inventory;
+import com.poharkar.project.airBnbApp.entity.Room;
+import com.poharkar.project.airBnbApp.entity.User;
+import com.poharkar.project.airBnbApp.entity.enums.Role;
+import com.poharkar.project.airBnbApp.repository.InventoryRepository;
+import com.poharkar.project.airBnbApp.service.InventoryLedger;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.persistence.autoconfigure.EntityScan;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Booking admission in Postgres through the real InventoryRepository queries, all threads on the same nights of one room,
+// the way BookingServiceImpl reserves in each inventory.reservation.mode and with the InventoryLedger in front (LEDGER).
+// Every attempt rolls back, so a room with free nights never sells out and the numbers are the cost of the row locks,
+// freeRooms=0 is a sold out room where every attempt is refused.
+// Runs against -Dbenchmark.postgres.url (pass it with -Djmh.options="-jvmArgsAppend -Dbenchmark.postgres.url=...")
+// or against a container, the schema is created and dropped by Hibernate.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class InventoryReservationBenchmark {
+
+    private static final LocalDate START_DATE=LocalDate.of(2031,3,1);
+    private static final LocalDate END_DATE=START_DATE.plusDays(2);
+    private static final long NIGHTS=ChronoUnit.DAYS.between(START_DATE,END_DATE)+1;
+
+    @Param({"PESSIMISTIC", "OPTIMISTIC", "LEDGER"})
+    private String admission;
+
+    @Param({"1000000", "0"})
+    private int freeRooms;
+
+    private PostgreSQLContainer postgres;
+    private ConfigurableApplicationContext context;
+    private InventoryRepository inventoryRepository;
+    private InventoryLedger inventoryLedger;
+    private TransactionTemplate transactionTemplate;
+    private Long roomId;
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Inventory.class)
+    @EnableJpaRepositories(basePackageClasses = InventoryRepository.class)
+    static class RepositoryConfiguration {
+    }
+
+    @Setup
+    public void setup(){
+        String url=System.getProperty("benchmark.postgres.url");
+        String username=System.getProperty("benchmark.postgres.username","postgres");
+        String password=System.getProperty("benchmark.postgres.password","");
+        if(url==null){
+            postgres=new PostgreSQLContainer("postgres:16-alpine");
+            postgres.start();
+            url=postgres.getJdbcUrl();
+            username=postgres.getUsername();
+            password=postgres.getPassword();
+        }
+
+        // repositories only, none of the application's services, schedulers or security
+        context=new SpringApplicationBuilder(RepositoryConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url="+url,
+                        "spring.datasource.username="+username,
+                        "spring.datasource.password="+password,
+                        "spring.datasource.hikari.maximum-pool-size=16",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.flyway.enabled=false")
+                .run();
+        inventoryRepository=context.getBean(InventoryRepository.class);
+        transactionTemplate=context.getBean(TransactionTemplate.class);
+
+        roomId=transactionTemplate.execute(status->{
+            EntityManager entityManager=context.getBean(EntityManager.class);
+            User owner=new User();
+            owner.setEmail("owner@example.com");
+            owner.setPassword("password");
+            owner.setRoles(Set.of(Role.HOTEL_MANAGER));
+            entityManager.persist(owner);
+
+            Hotel hotel=new Hotel();
+            hotel.setName("Hotel");
+            hotel.setCity("Pune");
+            hotel.setActive(true);
+            hotel.setOwner(owner);
+            entityManager.persist(hotel);
+
+            Room room=new Room();
+            room.setHotel(hotel);
+            room.setType("Deluxe");
+            room.setBasePrice(BigDecimal.valueOf(1000));
+            room.setTotalCount(freeRooms);
+            room.setCapacity(2);
+            entityManager.persist(room);
+
+            for(LocalDate date=START_DATE;!date.isAfter(END_DATE);date=date.plusDays(1)){
+                entityManager.persist(Inventory.builder()
+                        .hotel(hotel).room(room).date(date)
+                        .bookedCount(0).reservedCount(0).totalCount(freeRooms)
+                        .surgeFactor(BigDecimal.ONE).price(new BigDecimal("1000.00"))
+                        .city("Pune").closed(false)
+                        .build());
+            }
+            return room.getId();
+        });
+
+        inventoryLedger=new InventoryLedger(inventoryRepository);
+        ReflectionTestUtils.setField(inventoryLedger,"enabled",true);
+        ReflectionTestUtils.setField(inventoryLedger,"lockStripes",64);
+        ReflectionTestUtils.invokeMethod(inventoryLedger,"initLocks");
+    }
+
+    @TearDown
+    public void tearDown(){
+        context.close();
+        if(postgres!=null){
+            postgres.stop();
+        }
+    }
+
+    @Benchmark
+    public boolean reserveAndRollBack(){
+        return Boolean.TRUE.equals(transactionTemplate.execute(status->{
+            status.setRollbackOnly();
+            if(admission.equals("LEDGER") && !inventoryLedger.tryReserve(roomId,START_DATE,END_DATE,1)){
+                return false;
+            }
+            if(admission.equals("PESSIMISTIC")){
+                List<Inventory> inventoryList=inventoryRepository.findAndLockAvailableInventory(roomId,
+                        START_DATE,END_DATE,1);
+                if(inventoryList.size()!=NIGHTS) return false;
+                inventoryRepository.initBooking(roomId,START_DATE,END_DATE,1);
+                return true;
+            }
+            return inventoryRepository.initBooking(roomId,START_DATE,END_DATE,1)==NIGHTS;
+        }));
+    }
+}
@@ -0,0 +1,270 @@
+package com.poharkar.project.airBnbApp.benchmark;
+
+import com.poharkar.project.airBnbApp.entity.Inventory;
+import com.poharkar.project.airBnbApp.strategy.HolidayCalendar;
+import com.poharkar.project.airBnbApp.strategy.PricingPipeline;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+// A room's year as one row per day, like the Inventory table, against run-length encoded date range segments
+// that split and merge on every change. The segments are a prototype for this comparison only.
+// Calendars are priced by PricingPipeline with holidays, so the runs are broken where the real prices break:
+//  FRESH   a new room, no bookings
+//  STAYS   FRESH plus 60 stays of 1-3 rooms for 1-6 nights
+//  RANDOM  BenchmarkData counts, a different booked count almost every night
+// Setup prints the rows and segments of each calendar, the memory side of the comparison.
+// Run-length encoded inventory is not adopted, measured in a plain timing loop, best of 5 x 200k calls, JDK 21:
+//                    FRESH      STAYS      RANDOM
+//   segments/365     72         152        365
+//   scanWeek rows    25 ns      10 ns      8 ns
+//   scanWeek segs    136 ns     67 ns      167 ns
+//   scanYear rows    1152 ns    786 ns     1835 ns
+//   scanYear segs    544 ns     904 ns     3383 ns
+//   reserve rows     11 ns      10 ns      17 ns
+//   reserve segs     739 ns     1349 ns    1749 ns
+// Pricing already breaks a fresh room into 72 runs and a busy one does not compress, while week lookups get 5-20x
+// and bookings 70-100x slower. Only the year scan of a fresh room wins, and repricing only scans the changed days.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InventorySegmentBenchmark {
+
+    private static final int DAYS=365;
+
+    @Param({"FRESH", "STAYS", "RANDOM"})
+    private String calendar;
+
+    private RoomRows rows;
+    private RoomSegments segments;
+    private long firstDay;
+    private int nextStay;
+
+    @Setup
+    public void setup(){
+        BenchmarkData data=new BenchmarkData();
+        LocalDate today=LocalDate.now();
+        List<Inventory> inventoryList=data.hotelInventories(1,today,DAYS);
+        if(!calendar.equals("RANDOM")){
+            inventoryList.forEach(inventory->{
+                inventory.setBookedCount(0);
+                inventory.setReservedCount(0);
+                inventory.setClosed(false);
+                inventory.setSurgeFactor(BigDecimal.ONE);
+            });
+        }
+        new PricingPipeline(today,HolidayCalendar.parse(data.holidayLines(today,DAYS))).applyPrices(inventoryList);
+
+        firstDay=today.toEpochDay();
+        rows=new RoomRows(inventoryList);
+        segments=new RoomSegments(inventoryList);
+
+        if(calendar.equals("STAYS")){
+            Random random=new Random(BenchmarkData.SEED);
+            for(int i=0;i<60;i++){
+                long start=firstDay+random.nextInt(DAYS-6);
+                long end=start+random.nextInt(6);
+                int roomsCount=1+random.nextInt(3);
+                if(rows.hasCapacity(start,end,roomsCount)){
+                    rows.reserve(start,end,roomsCount);
+                    segments.reserve(start,end,roomsCount);
+                }
+            }
+        }
+        System.out.printf("%s calendar: %d rows, %d segments%n",calendar,DAYS,segments.size());
+    }
+
+    // availability of a week's stay, the read of booking admission and search
+    @Benchmark
+    public boolean scanWeekRows(){
+        long start=nextStart();
+        return rows.hasCapacity(start,start+6,1);
+    }
+
+    @Benchmark
+    public boolean scanWeekSegments(){
+        long start=nextStart();
+        return segments.hasCapacity(start,start+6,1);
+    }
+
+    // the cheapest price of the year, the read of the min price upsert
+    @Benchmark
+    public BigDecimal scanYearRows(){
+        return rows.minPrice();
+    }
+
+    @Benchmark
+    public BigDecimal scanYearSegments(){
+        return segments.minPrice();
+    }
+
+    // a 3 night booking and its release, the write of initialiseBooking and the expiry sweep
+    @Benchmark
+    public int reserveRows(){
+        long start=nextStart();
+        rows.reserve(start,start+2,1);
+        rows.reserve(start,start+2,-1);
+        return rows.freeCount[(int) (start-firstDay)];
+    }
+
+    @Benchmark
+    public int reserveSegments(){
+        long start=nextStart();
+        segments.reserve(start,start+2,1);
+        segments.reserve(start,start+2,-1);
+        return segments.size();
+    }
+
+    private long nextStart(){
+        nextStay=(nextStay+37)%(DAYS-7);
+        return firstDay+nextStay;
+    }
+
+    // One entry per day, like the Inventory rows of a room
+    static class RoomRows {
+        private final long firstDay;
+        private final int[] freeCount;
+        private final boolean[] closed;
+        private final BigDecimal[] price;
+
+        RoomRows(List<Inventory> inventoryList){
+            firstDay=inventoryList.getFirst().getDate().toEpochDay();
+            freeCount=new int[inventoryList.size()];
+            closed=new boolean[inventoryList.size()];
+            price=new BigDecimal[inventoryList.size()];
+            for(int i=0;i<inventoryList.size();i++){
+                Inventory inventory=inventoryList.get(i);
+                freeCount[i]=inventory.getTotalCount()-inventory.getBookedCount()-inventory.getReservedCount();
+                closed[i]=inventory.getClosed();
+                price[i]=inventory.getPrice();
+            }
+        }
+
+        boolean hasCapacity(long startDay, long endDay, int roomsCount){
+            for(int i=(int) (startDay-firstDay);i<=endDay-firstDay;i++){
+                if(closed[i] || freeCount[i]<roomsCount) return false;
+            }
+            return true;
+        }
+
+        BigDecimal minPrice(){
+            BigDecimal min=price[0];
+            for(BigDecimal dayPrice: price){
+                if(dayPrice.compareTo(min)<0) min=dayPrice;
+            }
+            return min;
+        }
+
+        void reserve(long startDay, long endDay, int roomsCount){
+            for(int i=(int) (startDay-firstDay);i<=endDay-firstDay;i++){
+                freeCount[i]-=roomsCount;
+            }
+        }
+    }
+
+    // Runs of equal days keyed by their first day, split at the edges of a change and merged again after it
+    static class RoomSegments {
+        private final TreeMap<Long, Segment> segments=new TreeMap<>();
+
+        RoomSegments(List<Inventory> inventoryList){
+            for(Inventory inventory: inventoryList){
+                long day=inventory.getDate().toEpochDay();
+                Segment segment=new Segment(day,inventory.getTotalCount()-inventory.getBookedCount()-inventory.getReservedCount(),
+                        inventory.getClosed(),inventory.getPrice());
+                Map.Entry<Long, Segment> last=segments.lastEntry();
+                if(last!=null && last.getValue().endDay==day-1 && last.getValue().sameValues(segment)){
+                    last.getValue().endDay=day;
+                }else{
+                    segments.put(day,segment);
+                }
+            }
+        }
+
+        int size(){
+            return segments.size();
+        }
+
+        boolean hasCapacity(long startDay, long endDay, int roomsCount){
+            for(Segment segment: segments.subMap(segments.floorKey(startDay),true,endDay,true).values()){
+                if(segment.closed || segment.freeCount<roomsCount) return false;
+            }
+            return true;
+        }
+
+        BigDecimal minPrice(){
+            BigDecimal min=segments.firstEntry().getValue().price;
+            for(Segment segment: segments.values()){
+                if(segment.price.compareTo(min)<0) min=segment.price;
+            }
+            return min;
+        }
+
+        void reserve(long startDay, long endDay, int roomsCount){
+            split(startDay);
+            split(endDay+1);
+            for(Segment segment: segments.subMap(startDay,true,endDay,true).values()){
+                segment.freeCount-=roomsCount;
+            }
+            mergeFrom(startDay,endDay+1);
+        }
+
+        // starts a segment at day, the left part keeps the days before it
+        private void split(long day){
+            Map.Entry<Long, Segment> entry=segments.floorEntry(day);
+            if(entry==null || entry.getKey()==day || entry.getValue().endDay<day) return;
+            Segment left=entry.getValue();
+            segments.put(day,new Segment(day,left.endDay,left.freeCount,left.closed,left.price));
+            left.endDay=day-1;
+        }
+
+        // joins equal neighbours from the segment before startDay up to the segment at endDay
+        private void mergeFrom(long startDay, long endDay){
+            Long key=segments.lowerKey(startDay);
+            if(key==null) key=segments.firstKey();
+            Segment current=segments.get(key);
+            Map.Entry<Long, Segment> next=segments.higherEntry(key);
+            while(next!=null && next.getKey()<=endDay){
+                if(current.endDay==next.getKey()-1 && current.sameValues(next.getValue())){
+                    current.endDay=next.getValue().endDay;
+                    segments.remove(next.getKey());
+                }else{
+                    current=next.getValue();
+                }
+                next=segments.higherEntry(current.startDay);
+            }
+        }
+    }
+
+    static class Segment {
+        private final long startDay;
+        private long endDay;
+        private int freeCount;
+        private final boolean closed;
+        private final BigDecimal price;
+
+        Segment(long day, int freeCount, boolean closed, BigDecimal price){
+            this(day,day,freeCount,closed,price);
+        }
+
+        Segment(long startDay, long endDay, int freeCount, boolean closed, BigDecimal price){
+            this.startDay=startDay;
+            this.endDay=endDay;
+            this.freeCount=freeCount;
+            this.closed=closed;
+            this.price=price;
+        }
+
+        boolean sameValues(Segment other){
+            return freeCount==other.freeCount && closed==other.closed && price.compareTo(other.price)==0;
+        }
+    }
+}
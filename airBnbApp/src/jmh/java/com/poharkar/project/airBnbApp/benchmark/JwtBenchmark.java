@@ -0,0 +1,45 @@
+package com.poharkar.project.airBnbApp.benchmark;
+
+import com.poharkar.project.airBnbApp.security.JWTService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// The per-request JWT path of JWTAuthFilter, with the verified token cache and with a full signature check
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private static final String SECRET_KEY="benchmark-secret-key-benchmark-secret-key-benchmark-secret-key";
+
+    private JWTService jwtService;
+    private JWTService uncachedJwtService;
+    private String accessToken;
+
+    @Setup
+    public void setup(){
+        jwtService=new JWTService(SECRET_KEY,10000,600,new SimpleMeterRegistry());
+        uncachedJwtService=new JWTService(SECRET_KEY,0,600,new SimpleMeterRegistry());
+        accessToken=jwtService.generateAccessToken(new BenchmarkData().user());
+    }
+
+    @Benchmark
+    public Long getUserIdFromToken(){
+        return jwtService.getUserIdFromToken(accessToken);
+    }
+
+    @Benchmark
+    public Long getUserIdFromTokenUncached(){
+        return uncachedJwtService.getUserIdFromToken(accessToken);
+    }
+
+    @Benchmark
+    public String generateAccessToken(){
+        return jwtService.generateAccessToken(new BenchmarkData().user());
+    }
+}
@@ -0,0 +1,70 @@
+package com.poharkar.project.airBnbApp.benchmark;
+
+import com.poharkar.project.airBnbApp.dto.BookingDto;
+import com.poharkar.project.airBnbApp.dto.HotelDto;
+import com.poharkar.project.airBnbApp.dto.InventoryDto;
+import com.poharkar.project.airBnbApp.entity.Booking;
+import com.poharkar.project.airBnbApp.entity.Hotel;
+import com.poharkar.project.airBnbApp.entity.Inventory;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// ModelMapper entity to DTO mapping as done by the services, with the same ModelMapper setup as MapperConfig
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    private ModelMapper modelMapper;
+    private Booking booking;
+    private Hotel hotel;
+    private Inventory inventory;
+    private List<Inventory> inventoryList;
+
+    @Setup
+    public void setup(){
+        BenchmarkData data=new BenchmarkData();
+        modelMapper=new ModelMapper();
+        booking=data.booking(data.user());
+        hotel=data.hotel();
+        inventoryList=data.hotelInventories(1,LocalDate.of(2026,1,1),365);
+        inventory=inventoryList.getFirst();
+
+        // the first mapping of a type pair builds the type map, keep that out of the measurement
+        modelMapper.map(booking,BookingDto.class);
+        modelMapper.map(hotel,HotelDto.class);
+        modelMapper.map(inventory,InventoryDto.class);
+    }
+
+    @Benchmark
+    public BookingDto bookingToDto(){
+        return modelMapper.map(booking,BookingDto.class);
+    }
+
+    @Benchmark
+    public HotelDto hotelToDto(){
+        return modelMapper.map(hotel,HotelDto.class);
+    }
+
+    @Benchmark
+    public InventoryDto inventoryToDto(){
+        return modelMapper.map(inventory,InventoryDto.class);
+    }
+
+    // getAllInventoryByRoom maps a whole year of a room
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void inventoryYearToDto(Blackhole blackhole){
+        for(Inventory element: inventoryList){
+            blackhole.consume(modelMapper.map(element,InventoryDto.class));
+        }
+    }
+}
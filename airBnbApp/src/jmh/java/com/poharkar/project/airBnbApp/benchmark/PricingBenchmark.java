@@ -0,0 +1,70 @@
+package com.poharkar.project.airBnbApp.benchmark;
+
+import com.poharkar.project.airBnbApp.entity.Inventory;
+import com.poharkar.project.airBnbApp.strategy.HolidayCalendarLoader;
+import com.poharkar.project.airBnbApp.strategy.PricingService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// PricingService as the repricing job and the booking flow call it: one hotel's year of inventory priced in a batch,
+// and the total of a week's stay. The holiday calendar is loaded from a file by the real HolidayCalendarLoader.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PricingBenchmark {
+
+    // rooms per hotel, priced for a year
+    @Param({"1", "10"})
+    private int roomsCount;
+
+    // without holidays the calendar file is missing and the loader falls back to the empty calendar
+    @Param({"true", "false"})
+    private boolean holidays;
+
+    private List<Inventory> inventoryList;
+    private PricingService pricingService;
+    private Path holidayFile;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkData data=new BenchmarkData();
+        LocalDate today=LocalDate.now();
+        inventoryList=data.hotelInventories(roomsCount,today,365);
+
+        holidayFile=Files.createTempFile("holidays",".csv");
+        Files.write(holidayFile,data.holidayLines(today,365));
+        HolidayCalendarLoader holidayCalendarLoader=new HolidayCalendarLoader(new DefaultResourceLoader());
+        ReflectionTestUtils.setField(holidayCalendarLoader,"location",
+                holidays? holidayFile.toUri().toString() : holidayFile.resolveSibling("missing-holidays.csv").toUri().toString());
+        holidayCalendarLoader.reloadIfChanged();
+        pricingService=new PricingService(holidayCalendarLoader);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(holidayFile);
+    }
+
+    @Benchmark
+    public List<Inventory> applyDynamicPricing(){
+        pricingService.applyDynamicPricing(inventoryList);
+        return inventoryList;
+    }
+
+    @Benchmark
+    public BigDecimal calculateTotalPrice(){
+        return pricingService.calculateTotalPrice(inventoryList.subList(0,7));
+    }
+}
@@ -0,0 +1,42 @@
+package com.poharkar.project.airBnbApp.benchmark;
+
+import com.poharkar.project.airBnbApp.security.TokenBucketRateLimiter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// The per-request cost of RateLimitFilter's bucket check, every thread on one hot client and spread over many clients
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private static final int CLIENT_COUNT=100_000;
+
+    private TokenBucketRateLimiter rateLimiter;
+    private String[] clientIps;
+
+    @Setup
+    public void setup(){
+        rateLimiter=new TokenBucketRateLimiter(TokenBucketRateLimiter.MAX_CAPACITY,1000);
+        clientIps=new String[CLIENT_COUNT];
+        for(int i=0;i<CLIENT_COUNT;i++){
+            clientIps[i]="10."+(i>>16)+"."+((i>>8)&255)+"."+(i&255);
+        }
+    }
+
+    @Benchmark
+    public long hotClient(){
+        return rateLimiter.tryAcquire(clientIps[0]);
+    }
+
+    @Benchmark
+    public long manyClients(){
+        return rateLimiter.tryAcquire(clientIps[ThreadLocalRandom.current().nextInt(CLIENT_COUNT)]);
+    }
+}
@@ -0,0 +1,42 @@
+package com.poharkar.project.airBnbApp.benchmark;
+
+import com.poharkar.project.airBnbApp.entity.Inventory;
+import com.poharkar.project.airBnbApp.service.RepricingTracker;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// The per-hotel grouping of changed dates that decides what the hourly repricing run touches
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepricingTrackerBenchmark {
+
+    @Param({"1", "10"})
+    private int roomsCount;
+
+    private List<Inventory> inventoryList;
+    private RepricingTracker repricingTracker;
+
+    @Setup
+    public void setup(){
+        inventoryList=new BenchmarkData().hotelInventories(roomsCount,LocalDate.of(2026,1,1),365);
+        repricingTracker=new RepricingTracker();
+    }
+
+    // one booking change per inventory row spread over 1000 hotels, then one hourly drain
+    @Benchmark
+    public Map<Long, RepricingTracker.DirtyDates> markAndDrain(){
+        for(int i=0;i<inventoryList.size();i++){
+            Inventory inventory=inventoryList.get(i);
+            repricingTracker.markDirty((long) (i%1000),inventory.getDate(),inventory.getDate().plusDays(3));
+        }
+        return repricingTracker.drain();
+    }
+}
@@ -1,6 +1,10 @@
 package com.poharkar.project.airBnbApp.advice;
 
+import com.poharkar.project.airBnbApp.exception.BadRequestException;
+import com.poharkar.project.airBnbApp.exception.ConflictException;
 import com.poharkar.project.airBnbApp.exception.ResourceNotFoundException;
+import com.poharkar.project.airBnbApp.exception.ServiceUnavailableException;
+import com.poharkar.project.airBnbApp.exception.TooManyRequestsException;
 import com.poharkar.project.airBnbApp.exception.UnAuthorisedException;
 import io.jsonwebtoken.JwtException;
 import org.springframework.http.HttpStatus;
@@ -23,6 +27,15 @@ public class GlobalExceptionHandler {
         return buildErrorResponseEntity(apiError);
     }
 
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<ApiResponse<?>> handleBadRequestException(BadRequestException ex){
+        ApiError apiError=ApiError.builder()
+                .status(HttpStatus.BAD_REQUEST)
+                .message(ex.getMessage())
+                .build();
+        return buildErrorResponseEntity(apiError);
+    }
+
     @ExceptionHandler(AuthenticationException.class)
     public ResponseEntity<ApiResponse<?>> handleAuthenticationException(AuthenticationException ex){
         ApiError apiError=ApiError.builder()
@@ -50,6 +63,33 @@ public class GlobalExceptionHandler {
         return buildErrorResponseEntity(apiError);
     }
 
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<ApiResponse<?>> handleConflictException(ConflictException ex){
+        ApiError apiError=ApiError.builder()
+                .status(HttpStatus.CONFLICT)
+                .message(ex.getMessage())
+                .build();
+        return buildErrorResponseEntity(apiError);
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ApiResponse<?>> handleServiceUnavailableException(ServiceUnavailableException ex){
+        ApiError apiError=ApiError.builder()
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .message(ex.getMessage())
+                .build();
+        return buildErrorResponseEntity(apiError);
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ApiResponse<?>> handleTooManyRequestsException(TooManyRequestsException ex){
+        ApiError apiError=ApiError.builder()
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .message(ex.getMessage())
+                .build();
+        return buildErrorResponseEntity(apiError);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse<?>> handleInternalServerError(Exception exception) {
         ApiError apiError = ApiError.builder()
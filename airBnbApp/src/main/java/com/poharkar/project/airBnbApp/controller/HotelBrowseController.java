@@ -1,11 +1,15 @@
 package com.poharkar.project.airBnbApp.controller;
 
+import com.poharkar.project.airBnbApp.dto.BookingRequest;
+import com.poharkar.project.airBnbApp.dto.CursorPageDto;
 import com.poharkar.project.airBnbApp.dto.HotelDto;
 import com.poharkar.project.airBnbApp.dto.HotelInfoDto;
 import com.poharkar.project.airBnbApp.dto.HotelPriceDto;
 import com.poharkar.project.airBnbApp.dto.HotelSearchRequest;
+import com.poharkar.project.airBnbApp.dto.PriceQuoteDto;
 import com.poharkar.project.airBnbApp.service.HotelService;
 import com.poharkar.project.airBnbApp.service.InventoryService;
+import com.poharkar.project.airBnbApp.service.PriceQuoteService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -20,6 +24,7 @@ public class HotelBrowseController {
 
     private final InventoryService inventoryService;
     private final HotelService hotelService;
+    private final PriceQuoteService priceQuoteService;
 
     @PostMapping("/search")
     public ResponseEntity<Page<HotelPriceDto>> searchHotels(@RequestBody HotelSearchRequest hotelSearchRequest){
@@ -28,6 +33,18 @@ public class HotelBrowseController {
         return ResponseEntity.ok(page);
     }
 
+    @PostMapping("/search/cursor")
+    public ResponseEntity<CursorPageDto<HotelPriceDto>> searchHotelsByCursor(@RequestBody HotelSearchRequest hotelSearchRequest){
+        log.info("Attempting to fetch a hotel by cursor with HotelSearchRequest {}", hotelSearchRequest.getCity());
+        return ResponseEntity.ok(inventoryService.searchHotelsByCursor(hotelSearchRequest));
+    }
+
+    @PostMapping("/quote")
+    public ResponseEntity<PriceQuoteDto> getPriceQuote(@RequestBody BookingRequest bookingRequest){
+        log.info("Attempting to quote room with ID {}", bookingRequest.getRoomId());
+        return ResponseEntity.ok(priceQuoteService.getQuote(bookingRequest));
+    }
+
     @GetMapping("/{hotelId}/info")
     public ResponseEntity<HotelInfoDto> getHotelInfo(@PathVariable Long hotelId){
         log.info("Attempting to fetch a hotel info with Hotel ID {}", hotelId);
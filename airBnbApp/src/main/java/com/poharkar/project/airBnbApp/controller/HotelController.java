@@ -1,16 +1,26 @@
 package com.poharkar.project.airBnbApp.controller;
 
 import com.poharkar.project.airBnbApp.dto.BookingDto;
+import com.poharkar.project.airBnbApp.dto.CursorPageDto;
 import com.poharkar.project.airBnbApp.dto.HotelDto;
 import com.poharkar.project.airBnbApp.dto.HotelReportDto;
+import com.poharkar.project.airBnbApp.entity.enums.BookingStatus;
+import com.poharkar.project.airBnbApp.service.BookingExportService;
 import com.poharkar.project.airBnbApp.service.BookingService;
 import com.poharkar.project.airBnbApp.service.HotelService;
 import lombok.RequiredArgsConstructor;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -21,6 +31,10 @@ import java.util.List;
 public class HotelController {
     private final HotelService hotelService;
     private final BookingService bookingService;
+    private final BookingExportService bookingExportService;
+
+    @Value("${booking.export.timeout-ms:600000}")
+    private long exportTimeoutMillis;
 
     @PostMapping
     public ResponseEntity<HotelDto> createNewHotel(@RequestBody HotelDto hotelDto){
@@ -69,6 +83,33 @@ public class HotelController {
         return ResponseEntity.ok(bookingService.getAllBookingsByHotelId(hotelId));
     }
 
+    @GetMapping("/{hotelId}/bookings/cursor")
+    public ResponseEntity<CursorPageDto<BookingDto>> getBookingsByHotelId(@PathVariable Long hotelId,
+                                                                         @RequestParam(required = false) String cursor,
+                                                                         @RequestParam(defaultValue = "20") Integer size){
+        return ResponseEntity.ok(bookingService.getBookingsByHotelId(hotelId,cursor,size));
+    }
+
+    // Its own timeout instead of a global spring.mvc.async.request-timeout, big hotels can take minutes to export
+    @GetMapping("/{hotelId}/bookings/export")
+    public WebAsyncTask<Void> exportBookingsByHotelId(@PathVariable Long hotelId,
+                                                      @RequestParam(defaultValue = "csv") String format,
+                                                      @RequestParam(required = false) LocalDate startDate,
+                                                      @RequestParam(required = false) LocalDate endDate,
+                                                      @RequestParam(required = false) BookingStatus status,
+                                                      HttpServletResponse response){
+        BookingExportService.ExportFormat exportFormat=BookingExportService.ExportFormat.from(format);
+        StreamingResponseBody body=bookingExportService.exportBookings(hotelId,startDate,endDate,status,exportFormat);
+        boolean csv=exportFormat==BookingExportService.ExportFormat.CSV;
+        response.setContentType(csv? new MediaType("text","csv",StandardCharsets.UTF_8).toString() : MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,"attachment; filename=\"hotel-"+hotelId+"-bookings."+(csv? "csv" : "ndjson")+"\"");
+        return new WebAsyncTask<>(exportTimeoutMillis,()->{
+            body.writeTo(response.getOutputStream());
+            response.flushBuffer();
+            return null;
+        });
+    }
+
     @GetMapping("/{hotelId}/report")
     public ResponseEntity<HotelReportDto> getHotelReport(@PathVariable Long hotelId,
                                                          @RequestParam(required = false)LocalDate startDate,
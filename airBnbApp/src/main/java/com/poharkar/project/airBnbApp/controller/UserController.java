@@ -1,6 +1,7 @@
 package com.poharkar.project.airBnbApp.controller;
 
 import com.poharkar.project.airBnbApp.dto.BookingDto;
+import com.poharkar.project.airBnbApp.dto.CursorPageDto;
 import com.poharkar.project.airBnbApp.dto.GuestDto;
 import com.poharkar.project.airBnbApp.dto.ProfileUpdateRequestDto;
 import com.poharkar.project.airBnbApp.dto.UserDto;
@@ -41,6 +42,12 @@ public class UserController {
         return ResponseEntity.ok(bookingService.getMyBookings());
     }
 
+    @GetMapping("/myBookings/cursor")
+    public ResponseEntity<CursorPageDto<BookingDto>> getMyBookings(@RequestParam(required = false) String cursor,
+                                                                  @RequestParam(defaultValue = "20") Integer size){
+        return ResponseEntity.ok(bookingService.getMyBookings(cursor,size));
+    }
+
 
 
     @GetMapping("/guests")
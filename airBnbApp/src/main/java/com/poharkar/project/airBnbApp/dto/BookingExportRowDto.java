@@ -0,0 +1,25 @@
+package com.poharkar.project.airBnbApp.dto;
+
+import com.poharkar.project.airBnbApp.entity.enums.BookingStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingExportRowDto {
+    private Long id;
+    private Long roomId;
+    private Long userId;
+    private Integer roomsCount;
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+    private BookingStatus bookingStatus;
+    private BigDecimal amount;
+    private LocalDateTime createdAt;
+}
@@ -11,4 +11,7 @@ public class BookingRequest {
     private LocalDate checkInDate;
     private LocalDate checkOutDate;
     private Integer roomsCount;
+
+    // optional, a still valid quote from /hotels/quote fixes the price of the booking
+    private String quoteId;
 }
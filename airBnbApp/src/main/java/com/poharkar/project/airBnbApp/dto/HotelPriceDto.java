@@ -1,6 +1,5 @@
 package com.poharkar.project.airBnbApp.dto;
 
-import com.poharkar.project.airBnbApp.entity.Hotel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,6 +9,15 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class HotelPriceDto {
 
-    private Hotel hotel;
+    private Long hotelId;
+    private String name;
+    private String city;
+    private Double rating;
+    private String photo;
     private Double price;
+
+    // used by the search queries, only the first photo is sent with a search result
+    public HotelPriceDto(Long hotelId, String name, String city, Double rating, String[] photos, Double price) {
+        this(hotelId, name, city, rating, photos==null || photos.length==0? null : photos[0], price);
+    }
 }
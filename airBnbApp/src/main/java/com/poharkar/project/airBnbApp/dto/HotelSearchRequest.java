@@ -14,4 +14,7 @@ public class HotelSearchRequest {
 
     private Integer page=0;
     private Integer size=10;
+
+    // continuation token of the cursor search, null for the first page
+    private String cursor;
 }
@@ -0,0 +1,18 @@
+package com.poharkar.project.airBnbApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InventoryAvailabilityDto {
+    private Long roomId;
+    private Long hotelId;
+    private LocalDate date;
+    private Integer freeCount;
+    private Boolean closed;
+}
@@ -0,0 +1,25 @@
+package com.poharkar.project.airBnbApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PriceQuoteDto {
+    private String quoteId;
+    private Long hotelId;
+    private Long roomId;
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+    private Integer roomsCount;
+    private BigDecimal totalPrice;
+    private LocalDateTime expiresAt;
+}
@@ -14,6 +14,11 @@ import java.util.Set;
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_booking_status_created_at", columnList = "booking_status, created_at"),
+        @Index(name = "idx_booking_user_created_at", columnList = "user_id, created_at"),
+        @Index(name = "idx_booking_hotel_created_at", columnList = "hotel_id, created_at")
+        })
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
@@ -0,0 +1,49 @@
+package com.poharkar.project.airBnbApp.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Confirmed bookings, their revenue and cancellations per hotel and booking creation date
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(uniqueConstraints = @UniqueConstraint(
+        name = "unique_hotel_daily_revenue_hotel_date",
+        columnNames = {"hotel_id","date"}
+        ))
+public class HotelDailyRevenue {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name="hotel_id",nullable = false)
+    private Hotel hotel;
+
+    @Column(nullable = false)
+    private LocalDate date;
+
+    @Column(nullable = false)
+    private Integer confirmedCount;
+
+    @Column(nullable = false,precision = 14,scale = 2)
+    private BigDecimal revenue;
+
+    @Column(nullable = false)
+    private Integer cancelledCount;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
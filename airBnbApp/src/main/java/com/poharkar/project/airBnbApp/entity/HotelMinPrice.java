@@ -15,6 +15,10 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @NoArgsConstructor
+@Table(uniqueConstraints = @UniqueConstraint(
+        name = "unique_hotel_min_price_hotel_date",
+        columnNames = {"hotel_id","date"}
+        ))
 public class HotelMinPrice {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
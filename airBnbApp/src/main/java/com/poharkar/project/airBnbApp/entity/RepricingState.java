@@ -0,0 +1,31 @@
+package com.poharkar.project.airBnbApp.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// The single row of what PricingUpdateService has already priced for, the changes it can not see in the RepricingTracker:
+// the last urgency window rollover and the holiday calendar. Kept across restarts and shared by every instance.
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+public class RepricingState {
+    public static final Integer ID=1;
+
+    @Id
+    private Integer id;
+
+    private LocalDate lastRolloverDate;
+
+    @Column(length = 64)
+    private String holidayCalendarFingerprint;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
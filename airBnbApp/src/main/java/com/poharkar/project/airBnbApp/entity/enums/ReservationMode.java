@@ -0,0 +1,6 @@
+package com.poharkar.project.airBnbApp.entity.enums;
+
+public enum ReservationMode {
+    PESSIMISTIC,
+    OPTIMISTIC
+}
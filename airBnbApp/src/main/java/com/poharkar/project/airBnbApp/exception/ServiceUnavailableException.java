@@ -0,0 +1,7 @@
+package com.poharkar.project.airBnbApp.exception;
+
+public class ServiceUnavailableException extends RuntimeException{
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -1,20 +1,162 @@
 package com.poharkar.project.airBnbApp.repository;
 
+import com.poharkar.project.airBnbApp.dto.BookingExportRowDto;
 import com.poharkar.project.airBnbApp.entity.Booking;
 import com.poharkar.project.airBnbApp.entity.Hotel;
 import com.poharkar.project.airBnbApp.entity.User;
+import com.poharkar.project.airBnbApp.entity.enums.BookingStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface BookingRepository extends JpaRepository<Booking,Long> {
-    Optional<Booking> findByPaymentSessionId(String sessionId);
 
+    interface BookingCity {
+        Long getBookingId();
+        String getCity();
+    }
+
+    // Waits for an expiry sweep or a retried webhook that holds the row, so a status change is decided on the committed status
+    @Query("SELECT b FROM Booking b WHERE b.id = :bookingId")
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Booking> findAndLockById(@Param("bookingId") Long bookingId);
+
+    @Query("SELECT b FROM Booking b WHERE b.paymentSessionId = :sessionId")
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Booking> findAndLockByPaymentSessionId(@Param("sessionId") String sessionId);
+
+    @EntityGraph(attributePaths = {"guests", "guests.user"})
     List<Booking> findByHotel(Hotel hotel);
 
     List<Booking> findByHotelAndCreatedAtBetween(Hotel hotel, LocalDateTime createdAtTime,LocalDateTime endDateTime);
 
+    @EntityGraph(attributePaths = {"guests", "guests.user"})
     List<Booking> findByUser(User user);
+
+    // Keyset pages of booking history, newest first. Only ids are paged, the bookings of a page
+    // are loaded with findWithGuestsByIdIn so the guest fetch join does not break the LIMIT.
+    @Query("""
+            SELECT b.id
+            FROM Booking b
+            WHERE b.user.id = :userId
+                AND (b.createdAt < :lastCreatedAt OR (b.createdAt = :lastCreatedAt AND b.id < :lastId))
+            ORDER BY b.createdAt DESC, b.id DESC
+            """)
+    List<Long> findIdsByUserIdBefore(@Param("userId") Long userId,
+                                     @Param("lastCreatedAt") LocalDateTime lastCreatedAt,
+                                     @Param("lastId") Long lastId,
+                                     Pageable pageable);
+
+    @Query("""
+            SELECT b.id
+            FROM Booking b
+            WHERE b.hotel.id = :hotelId
+                AND (b.createdAt < :lastCreatedAt OR (b.createdAt = :lastCreatedAt AND b.id < :lastId))
+            ORDER BY b.createdAt DESC, b.id DESC
+            """)
+    List<Long> findIdsByHotelIdBefore(@Param("hotelId") Long hotelId,
+                                      @Param("lastCreatedAt") LocalDateTime lastCreatedAt,
+                                      @Param("lastId") Long lastId,
+                                      Pageable pageable);
+
+    @Query("""
+            SELECT DISTINCT b
+            FROM Booking b
+            LEFT JOIN FETCH b.guests g
+            LEFT JOIN FETCH g.user u
+            LEFT JOIN FETCH u.roles
+            WHERE b.id IN :bookingIds
+            ORDER BY b.createdAt DESC, b.id DESC
+            """)
+    List<Booking> findWithGuestsByIdIn(@Param("bookingIds") Collection<Long> bookingIds);
+
+    @Query("""
+            SELECT b
+            FROM Booking b
+            WHERE b.bookingStatus IN :statuses
+                AND b.createdAt < :expiredBefore
+                AND (b.createdAt > :lastCreatedAt OR (b.createdAt = :lastCreatedAt AND b.id > :lastId))
+            ORDER BY b.createdAt, b.id
+            """)
+    List<Booking> findExpiredBookings(@Param("statuses") Collection<BookingStatus> statuses,
+                                      @Param("expiredBefore") LocalDateTime expiredBefore,
+                                      @Param("lastCreatedAt") LocalDateTime lastCreatedAt,
+                                      @Param("lastId") Long lastId,
+                                      Pageable pageable);
+
+    @Query("""
+            SELECT b
+            FROM Booking b
+            WHERE b.bookingStatus IN :statuses
+                AND b.createdAt >= :createdAfter
+                AND (b.createdAt > :lastCreatedAt OR (b.createdAt = :lastCreatedAt AND b.id > :lastId))
+            ORDER BY b.createdAt, b.id
+            """)
+    List<Booking> findBookingsOnHold(@Param("statuses") Collection<BookingStatus> statuses,
+                                     @Param("createdAfter") LocalDateTime createdAfter,
+                                     @Param("lastCreatedAt") LocalDateTime lastCreatedAt,
+                                     @Param("lastId") Long lastId,
+                                     Pageable pageable);
+
+    // SKIP LOCKED, so parallel sweeps never release the same hold twice
+    @Query("""
+            SELECT b
+            FROM Booking b
+            WHERE b.id IN :bookingIds
+                AND b.bookingStatus IN :statuses
+            """)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<Booking> findAndLockBookings(@Param("bookingIds") Collection<Long> bookingIds,
+                                      @Param("statuses") Collection<BookingStatus> statuses);
+
+    // the hotel city of every given booking in one statement, read apart from the lock above so the hotels stay unlocked
+    @Query("""
+            SELECT b.id AS bookingId, h.city AS city
+            FROM Booking b
+            JOIN b.hotel h
+            WHERE b.id IN :bookingIds
+            """)
+    List<BookingCity> findHotelCities(@Param("bookingIds") Collection<Long> bookingIds);
+
+    @Modifying
+    @Query("""
+            UPDATE Booking b
+            SET b.bookingStatus = :bookingStatus
+            WHERE b.id IN :bookingIds
+            """)
+    int updateBookingStatus(@Param("bookingIds") Collection<Long> bookingIds,
+                            @Param("bookingStatus") BookingStatus bookingStatus);
+
+    // forward-only read for the booking export, rows are DTOs so the persistence context stays empty
+    @Query("""
+            SELECT new com.poharkar.project.airBnbApp.dto.BookingExportRowDto(
+                b.id, b.room.id, b.user.id, b.roomsCount, b.checkInDate, b.checkOutDate, b.bookingStatus, b.amount, b.createdAt)
+            FROM Booking b
+            WHERE b.hotel.id = :hotelId
+                AND b.createdAt BETWEEN :startDateTime AND :endDateTime
+                AND (:status IS NULL OR b.bookingStatus = :status)
+            ORDER BY b.id
+            """)
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    Stream<BookingExportRowDto> streamBookingsForExport(@Param("hotelId") Long hotelId,
+                                                        @Param("startDateTime") LocalDateTime startDateTime,
+                                                        @Param("endDateTime") LocalDateTime endDateTime,
+                                                        @Param("status") BookingStatus status);
 }
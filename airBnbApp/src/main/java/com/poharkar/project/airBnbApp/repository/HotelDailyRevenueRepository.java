@@ -0,0 +1,76 @@
+package com.poharkar.project.airBnbApp.repository;
+
+import com.poharkar.project.airBnbApp.entity.HotelDailyRevenue;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public interface HotelDailyRevenueRepository extends JpaRepository<HotelDailyRevenue,Long> {
+
+    interface RevenueTotals {
+        Long getConfirmedCount();
+        BigDecimal getRevenue();
+    }
+
+    @Query("""
+            SELECT COALESCE(SUM(r.confirmedCount), 0) AS confirmedCount, COALESCE(SUM(r.revenue), 0) AS revenue
+            FROM HotelDailyRevenue r
+            WHERE r.hotel.id = :hotelId
+                AND r.date BETWEEN :startDate AND :endDate
+            """)
+    RevenueTotals sumRevenue(@Param("hotelId") Long hotelId,
+                             @Param("startDate") LocalDate startDate,
+                             @Param("endDate") LocalDate endDate);
+
+    // Per-hotel advisory locks held until commit. addRevenue callers take it shared and rebuildHotelRevenue exclusive,
+    // so a rebuild starts after every in-flight delta has committed and no delta lands between its read and its write.
+    @Query(value = """
+                SELECT 1 FROM pg_advisory_xact_lock_shared(hashtext('hotel_daily_revenue'), CAST(:hotelId % 2147483647 AS integer))
+            """, nativeQuery = true)
+    Integer lockHotelRevenueShared(@Param("hotelId") Long hotelId);
+
+    @Query(value = """
+                SELECT 1 FROM pg_advisory_xact_lock(hashtext('hotel_daily_revenue'), CAST(:hotelId % 2147483647 AS integer))
+            """, nativeQuery = true)
+    Integer lockHotelRevenue(@Param("hotelId") Long hotelId);
+
+    // adds the deltas to the row of the hotel and date, creating it on the first booking of the day
+    @Modifying
+    @Query(value = """
+                INSERT INTO hotel_daily_revenue (hotel_id, date, confirmed_count, revenue, cancelled_count, created_at, updated_at)
+                VALUES (:hotelId, :date, :confirmedCount, :revenue, :cancelledCount, now(), now())
+                ON CONFLICT ON CONSTRAINT unique_hotel_daily_revenue_hotel_date
+                DO UPDATE SET confirmed_count = hotel_daily_revenue.confirmed_count + EXCLUDED.confirmed_count,
+                              revenue = hotel_daily_revenue.revenue + EXCLUDED.revenue,
+                              cancelled_count = hotel_daily_revenue.cancelled_count + EXCLUDED.cancelled_count,
+                              updated_at = now()
+            """, nativeQuery = true)
+    int addRevenue(@Param("hotelId") Long hotelId,
+                   @Param("date") LocalDate date,
+                   @Param("confirmedCount") int confirmedCount,
+                   @Param("revenue") BigDecimal revenue,
+                   @Param("cancelledCount") int cancelledCount);
+
+    @Modifying
+    @Query(value = "DELETE FROM hotel_daily_revenue WHERE hotel_id = :hotelId", nativeQuery = true)
+    int deleteHotelRevenue(@Param("hotelId") Long hotelId);
+
+    // recomputes every day of a hotel from its bookings, used by the backfill after lockHotelRevenue and deleteHotelRevenue
+    @Modifying
+    @Query(value = """
+                INSERT INTO hotel_daily_revenue (hotel_id, date, confirmed_count, revenue, cancelled_count, created_at, updated_at)
+                SELECT b.hotel_id, CAST(b.created_at AS date),
+                       COUNT(*) FILTER (WHERE b.booking_status = 'CONFIRMED'),
+                       COALESCE(SUM(b.amount) FILTER (WHERE b.booking_status = 'CONFIRMED'), 0),
+                       COUNT(*) FILTER (WHERE b.booking_status = 'CANCELLED'),
+                       now(), now()
+                FROM booking b
+                WHERE b.hotel_id = :hotelId
+                GROUP BY b.hotel_id, CAST(b.created_at AS date)
+            """, nativeQuery = true)
+    int rebuildHotelRevenue(@Param("hotelId") Long hotelId);
+}
@@ -1,26 +1,37 @@
 package com.poharkar.project.airBnbApp.repository;
 
 import com.poharkar.project.airBnbApp.dto.HotelPriceDto;
-import com.poharkar.project.airBnbApp.entity.Hotel;
 import com.poharkar.project.airBnbApp.entity.HotelMinPrice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.Optional;
+import java.util.Collection;
+import java.util.List;
 
 public interface HotelMinPriceRepository extends JpaRepository<HotelMinPrice,Long> {
 
-    @Query("""
-            SELECT new com.poharkar.project.airBnbApp.dto.HotelPriceDto(i.hotel, AVG(i.price))
+    // Reads only hotel_min_price, roomsCount and dateCount are not checked here. With search.availability-index.enabled
+    // the hotels with rooms free on every night come from HotelAvailabilityIndex and are searched with findHotelsWithPriceIn,
+    // checking them here would be a GROUP BY over the city's inventory on every search
+    @Query(value = """
+            SELECT new com.poharkar.project.airBnbApp.dto.HotelPriceDto(h.id, h.name, h.city, h.rating, h.photos, AVG(i.price))
+            FROM HotelMinPrice i JOIN i.hotel h
+            WHERE LOWER(h.city) = LOWER(:city)
+                  AND i.date BETWEEN :startDate AND :endDate
+                  AND h.active=true
+            GROUP BY h.id, h.name, h.city, h.rating, h.photos
+            """, countQuery = """
+            SELECT COUNT(DISTINCT i.hotel.id)
             FROM HotelMinPrice i
-            WHERE i.hotel.city= :city
+            WHERE LOWER(i.hotel.city) = LOWER(:city)
                   AND i.date BETWEEN :startDate AND :endDate
                   AND i.hotel.active=true
-            GROUP BY i.hotel
             """)
     Page<HotelPriceDto> findHotelsWithAvailableInventory(
             @Param("city") String city,
@@ -31,5 +42,92 @@ public interface HotelMinPriceRepository extends JpaRepository<HotelMinPrice,Lon
             Pageable pageable
     );
 
-    Optional<HotelMinPrice> findByHotelAndDate(Hotel hotel, LocalDate date);
+    @Query(value = """
+            SELECT new com.poharkar.project.airBnbApp.dto.HotelPriceDto(h.id, h.name, h.city, h.rating, h.photos, AVG(i.price))
+            FROM HotelMinPrice i JOIN i.hotel h
+            WHERE LOWER(h.city) = LOWER(:city)
+                  AND i.date BETWEEN :startDate AND :endDate
+                  AND h.active=true
+                  AND h.id IN :hotelIds
+            GROUP BY h.id, h.name, h.city, h.rating, h.photos
+            """, countQuery = """
+            SELECT COUNT(DISTINCT i.hotel.id)
+            FROM HotelMinPrice i
+            WHERE LOWER(i.hotel.city) = LOWER(:city)
+                  AND i.date BETWEEN :startDate AND :endDate
+                  AND i.hotel.active=true
+                  AND i.hotel.id IN :hotelIds
+            """)
+    Page<HotelPriceDto> findHotelsWithPriceIn(
+            @Param("city") String city,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("hotelIds") Collection<Long> hotelIds,
+            Pageable pageable
+    );
+
+    // keyset over (average price rounded to cents, hotel id), pass a negative lastPrice for the first page.
+    // The rounded value is what goes into the cursor, so the comparison is exact.
+    // The average is over the dates of the search, so it can not be stored and indexed: every page still aggregates
+    // the min prices of all hotels of the city and filters on the aggregate. The keyset saves the OFFSET scan and the
+    // COUNT query, page N costs the same as page 1, not less.
+    @Query(value = """
+            SELECT new com.poharkar.project.airBnbApp.dto.HotelPriceDto(h.id, h.name, h.city, h.rating, h.photos,
+                CAST(ROUND(AVG(i.price), 2) AS Double))
+            FROM HotelMinPrice i JOIN i.hotel h
+            WHERE LOWER(h.city) = LOWER(:city)
+                  AND i.date BETWEEN :startDate AND :endDate
+                  AND h.active=true
+            GROUP BY h.id, h.name, h.city, h.rating, h.photos
+            HAVING ROUND(AVG(i.price), 2) > :lastPrice
+                  OR (ROUND(AVG(i.price), 2) = :lastPrice AND h.id > :lastHotelId)
+            ORDER BY ROUND(AVG(i.price), 2), h.id
+            """)
+    List<HotelPriceDto> findHotelsWithPriceAfter(
+            @Param("city") String city,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("lastPrice") BigDecimal lastPrice,
+            @Param("lastHotelId") Long lastHotelId,
+            Pageable pageable
+    );
+
+    @Query(value = """
+            SELECT new com.poharkar.project.airBnbApp.dto.HotelPriceDto(h.id, h.name, h.city, h.rating, h.photos,
+                CAST(ROUND(AVG(i.price), 2) AS Double))
+            FROM HotelMinPrice i JOIN i.hotel h
+            WHERE LOWER(h.city) = LOWER(:city)
+                  AND i.date BETWEEN :startDate AND :endDate
+                  AND h.active=true
+                  AND h.id IN :hotelIds
+            GROUP BY h.id, h.name, h.city, h.rating, h.photos
+            HAVING ROUND(AVG(i.price), 2) > :lastPrice
+                  OR (ROUND(AVG(i.price), 2) = :lastPrice AND h.id > :lastHotelId)
+            ORDER BY ROUND(AVG(i.price), 2), h.id
+            """)
+    List<HotelPriceDto> findHotelsWithPriceInAfter(
+            @Param("city") String city,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("hotelIds") Collection<Long> hotelIds,
+            @Param("lastPrice") BigDecimal lastPrice,
+            @Param("lastHotelId") Long lastHotelId,
+            Pageable pageable
+    );
+
+    // cheapest room price per date computed from Inventory and written in a single statement
+    @Modifying
+    @Query(value = """
+                INSERT INTO hotel_min_price (hotel_id, date, price, created_at, updated_at)
+                SELECT i.hotel_id, i.date, COALESCE(MIN(i.price), 0), now(), now()
+                FROM inventory i
+                WHERE i.hotel_id = :hotelId
+                    AND i.date BETWEEN :startDate AND :endDate
+                GROUP BY i.hotel_id, i.date
+                ON CONFLICT ON CONSTRAINT unique_hotel_min_price_hotel_date
+                DO UPDATE SET price = EXCLUDED.price, updated_at = now()
+            """, nativeQuery = true)
+    int upsertHotelMinPrices(@Param("hotelId") Long hotelId,
+                             @Param("startDate") LocalDate startDate,
+                             @Param("endDate") LocalDate endDate);
 }
@@ -3,9 +3,22 @@ package com.poharkar.project.airBnbApp.repository;
 import com.poharkar.project.airBnbApp.entity.Hotel;
 import com.poharkar.project.airBnbApp.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
 public interface HotelRepository extends JpaRepository<Hotel,Long> {
     List<Hotel> findByOwner(User user);
+
+    @Query("SELECT MIN(h.id) FROM Hotel h WHERE h.active = true")
+    Long findMinActiveHotelId();
+
+    @Query("SELECT MAX(h.id) FROM Hotel h WHERE h.active = true")
+    Long findMaxActiveHotelId();
+
+    @Query("SELECT h.id FROM Hotel h WHERE h.active = true")
+    List<Long> findActiveHotelIds();
+
+    @Query("SELECT h.id FROM Hotel h")
+    List<Long> findAllIds();
 }
@@ -1,19 +1,23 @@
 package com.poharkar.project.airBnbApp.repository;
 
+import com.poharkar.project.airBnbApp.dto.InventoryAvailabilityDto;
 import com.poharkar.project.airBnbApp.entity.Hotel;
 import com.poharkar.project.airBnbApp.entity.Inventory;
 import com.poharkar.project.airBnbApp.entity.Room;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface InventoryRepository extends JpaRepository<Inventory,Long> {
@@ -60,7 +64,6 @@ public interface InventoryRepository extends JpaRepository<Inventory,Long> {
                 WHERE i.room.id = :roomId
                   AND i.date BETWEEN :startDate AND :endDate
                   AND (i.totalCount - i.bookedCount) >= :numberOfRooms
-                  AND i.closed = false
             """)
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     List<Inventory> findAndLockReservedInventory(@Param("roomId") Long roomId,
@@ -77,7 +80,7 @@ public interface InventoryRepository extends JpaRepository<Inventory,Long> {
                   AND (i.totalCount - i.bookedCount - i.reservedCount) >= :numberOfRooms
                   AND i.closed = false
             """)
-    void initBooking(@Param("roomId") Long roomId,
+    int initBooking(@Param("roomId") Long roomId,
                      @Param("startDate") LocalDate startDate,
                      @Param("endDate") LocalDate endDate,
                      @Param("numberOfRooms") int numberOfRooms);
@@ -92,9 +95,8 @@ public interface InventoryRepository extends JpaRepository<Inventory,Long> {
                   AND i.date BETWEEN :startDate AND :endDate
                   AND (i.totalCount - i.bookedCount) >= :numberOfRooms
                   AND i.reservedCount >= :numberOfRooms
-                  AND i.closed = false
             """)
-    void confirmBooking(@Param("roomId") Long roomId,
+    int confirmBooking(@Param("roomId") Long roomId,
                         @Param("startDate") LocalDate startDate,
                         @Param("endDate") LocalDate endDate,
                         @Param("numberOfRooms") int numberOfRooms);
@@ -105,10 +107,9 @@ public interface InventoryRepository extends JpaRepository<Inventory,Long> {
                 SET i.bookedCount = i.bookedCount - :numberOfRooms
                 WHERE i.room.id = :roomId
                   AND i.date BETWEEN :startDate AND :endDate
-                  AND (i.totalCount - i.bookedCount) >= :numberOfRooms
-                  AND i.closed = false
+                  AND i.bookedCount >= :numberOfRooms
             """)
-    void cancelBooking(@Param("roomId") Long roomId,
+    int cancelBooking(@Param("roomId") Long roomId,
                        @Param("startDate") LocalDate startDate,
                        @Param("endDate") LocalDate endDate,
                        @Param("numberOfRooms") int numberOfRooms);
@@ -116,10 +117,152 @@ public interface InventoryRepository extends JpaRepository<Inventory,Long> {
 
 
 
+    // one row per room and date for the whole hotel in a single statement, existing rows are left untouched
+    @Modifying
+    @Query(value = """
+                INSERT INTO inventory (hotel_id, room_id, date, booked_count, reserved_count, total_count,
+                                       surge_factor, price, city, closed, created_at, updated_at)
+                SELECT r.hotel_id, r.id, CAST(d AS date), 0, 0, r.total_count, 1, r.base_price, h.city, false, now(), now()
+                FROM room r
+                JOIN hotel h ON h.id = r.hotel_id
+                CROSS JOIN generate_series(CAST(:startDate AS date), CAST(:endDate AS date), INTERVAL '1 day') d
+                WHERE r.hotel_id = :hotelId
+                ON CONFLICT ON CONSTRAINT unique_hotel_room_date DO NOTHING
+            """, nativeQuery = true)
+    int initializeHotelInventory(@Param("hotelId") Long hotelId,
+                                 @Param("startDate") LocalDate startDate,
+                                 @Param("endDate") LocalDate endDate);
+
+    @Modifying
+    @Query(value = """
+                INSERT INTO inventory (hotel_id, room_id, date, booked_count, reserved_count, total_count,
+                                       surge_factor, price, city, closed, created_at, updated_at)
+                SELECT r.hotel_id, r.id, CAST(d AS date), 0, 0, r.total_count, 1, r.base_price, h.city, false, now(), now()
+                FROM room r
+                JOIN hotel h ON h.id = r.hotel_id
+                CROSS JOIN generate_series(CAST(:startDate AS date), CAST(:endDate AS date), INTERVAL '1 day') d
+                WHERE r.id = :roomId
+                ON CONFLICT ON CONSTRAINT unique_hotel_room_date DO NOTHING
+            """, nativeQuery = true)
+    int initializeRoomInventory(@Param("roomId") Long roomId,
+                                @Param("startDate") LocalDate startDate,
+                                @Param("endDate") LocalDate endDate);
+
+    // the first date extendInventoryHorizon inserts for each active hotel in the id range, the day after the
+    // last inventory row of its least extended room
+    @Query(value = """
+                SELECT r.hotel_id AS hotelId,
+                       MIN(GREATEST(CAST(:startDate AS date),
+                                    COALESCE((SELECT MAX(i.date) + 1
+                                              FROM inventory i
+                                              WHERE i.hotel_id = r.hotel_id AND i.room_id = r.id),
+                                             CAST(:startDate AS date)))) AS firstNewDate
+                FROM room r
+                JOIN hotel h ON h.id = r.hotel_id
+                WHERE h.active = true
+                  AND h.id BETWEEN :fromHotelId AND :toHotelId
+                GROUP BY r.hotel_id
+            """, nativeQuery = true)
+    List<HorizonStart> findInventoryHorizonStarts(@Param("fromHotelId") Long fromHotelId,
+                                                  @Param("toHotelId") Long toHotelId,
+                                                  @Param("startDate") LocalDate startDate);
+
+    // appends the dates after the last inventory row of every room of the active hotels in the id range
+    @Modifying
+    @Query(value = """
+                INSERT INTO inventory (hotel_id, room_id, date, booked_count, reserved_count, total_count,
+                                       surge_factor, price, city, closed, created_at, updated_at)
+                SELECT r.hotel_id, r.id, CAST(d AS date), 0, 0, r.total_count, 1, r.base_price, h.city, false, now(), now()
+                FROM room r
+                JOIN hotel h ON h.id = r.hotel_id
+                CROSS JOIN LATERAL generate_series(
+                        GREATEST(CAST(:startDate AS date),
+                                 COALESCE((SELECT MAX(i.date) + 1
+                                           FROM inventory i
+                                           WHERE i.hotel_id = r.hotel_id AND i.room_id = r.id),
+                                          CAST(:startDate AS date))),
+                        CAST(:endDate AS date), INTERVAL '1 day') d
+                WHERE h.active = true
+                  AND h.id BETWEEN :fromHotelId AND :toHotelId
+                ON CONFLICT ON CONSTRAINT unique_hotel_room_date DO NOTHING
+            """, nativeQuery = true)
+    int extendInventoryHorizon(@Param("fromHotelId") Long fromHotelId,
+                               @Param("toHotelId") Long toHotelId,
+                               @Param("startDate") LocalDate startDate,
+                               @Param("endDate") LocalDate endDate);
+
+    // gives back the reserved rooms of the given bookings, one statement for the whole chunk
+    @Modifying
+    @Query(value = """
+                UPDATE inventory i
+                SET reserved_count = i.reserved_count - r.rooms_count
+                FROM (
+                    SELECT b.room_id, CAST(d AS date) AS date, SUM(b.rooms_count) AS rooms_count
+                    FROM booking b
+                    CROSS JOIN generate_series(b.check_in_date, b.check_out_date, INTERVAL '1 day') d
+                    WHERE b.id IN (:bookingIds)
+                    GROUP BY b.room_id, CAST(d AS date)
+                ) r
+                WHERE i.room_id = r.room_id
+                  AND i.date = r.date
+                  AND i.reserved_count >= r.rooms_count
+            """, nativeQuery = true)
+    int releaseReservedInventory(@Param("bookingIds") Collection<Long> bookingIds);
+
+    @Query("SELECT DISTINCT LOWER(TRIM(i.city)) FROM Inventory i WHERE i.date >= :startDate")
+    List<String> findCitiesWithInventoryFrom(@Param("startDate") LocalDate startDate);
+
+    @Query("""
+            SELECT new com.poharkar.project.airBnbApp.dto.InventoryAvailabilityDto(
+                i.room.id, i.hotel.id, i.date, i.totalCount - i.bookedCount - i.reservedCount, i.closed)
+            FROM Inventory i
+            WHERE LOWER(TRIM(i.city)) = LOWER(:city)
+                AND i.date >= :startDate
+            """)
+    List<InventoryAvailabilityDto> findAvailabilityByCity(@Param("city") String city,
+                                                          @Param("startDate") LocalDate startDate);
+
+    @Query("""
+            SELECT new com.poharkar.project.airBnbApp.dto.InventoryAvailabilityDto(
+                i.room.id, i.hotel.id, i.date, i.totalCount - i.bookedCount - i.reservedCount, i.closed)
+            FROM Inventory i
+            WHERE i.room.id = :roomId
+                AND i.date BETWEEN :startDate AND :endDate
+            """)
+    List<InventoryAvailabilityDto> findAvailabilityByRoom(@Param("roomId") Long roomId,
+                                                          @Param("startDate") LocalDate startDate,
+                                                          @Param("endDate") LocalDate endDate);
+
+    // read-only for repricing, the new prices are written with updatePrices and never flushed from these entities
+    @QueryHints(@QueryHint(name = "org.hibernate.readOnly", value = "true"))
     List<Inventory> findByHotelAndDateBetween(Hotel hotel, LocalDate startDate, LocalDate endDate);
 
+    // writes only the price, so bookings made while the hotel was being repriced keep their counts.
+    // The pipeline prices are unrounded (123.45 x 1.15 = 141.9675), they are compared at the scale of the column
+    // they are stored in, otherwise an unchanged price differs from its stored value and is rewritten on every run
+    @Modifying
+    @Query(value = """
+                UPDATE inventory i
+                SET price = ROUND(p.price, 2), updated_at = now()
+                FROM unnest(CAST(:ids AS bigint[]), CAST(:prices AS numeric[])) AS p(id, price)
+                WHERE i.id = p.id
+                  AND i.price <> ROUND(p.price, 2)
+            """, nativeQuery = true)
+    int updatePrices(@Param("ids") Long[] ids, @Param("prices") BigDecimal[] prices);
+
     List<Inventory> findByRoomOrderByDate(Room room);
 
+    @Query("""
+            SELECT new com.poharkar.project.airBnbApp.dto.InventoryAvailabilityDto(
+                i.room.id, i.hotel.id, i.date, i.totalCount - i.bookedCount - i.reservedCount, i.closed)
+            FROM Inventory i
+            WHERE i.room.id = :roomId
+            ORDER BY i.date
+            """)
+    List<InventoryAvailabilityDto> findAvailabilityByRoomOrderByDate(@Param("roomId") Long roomId);
+
+    List<Inventory> findByRoomIdAndDateBetween(Long roomId, LocalDate startDate, LocalDate endDate);
+
     @Query("""
                 SELECT i
                  FROM Inventory i
@@ -144,4 +287,9 @@ public interface InventoryRepository extends JpaRepository<Inventory,Long> {
                        @Param("endDate") LocalDate endDate,
                        @Param("closed") boolean closed,
                          @Param("surgeFactor") BigDecimal surgeFactor);
+
+    interface HorizonStart {
+        Long getHotelId();
+        LocalDate getFirstNewDate();
+    }
 }
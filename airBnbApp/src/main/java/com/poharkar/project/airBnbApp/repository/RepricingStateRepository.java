@@ -0,0 +1,7 @@
+package com.poharkar.project.airBnbApp.repository;
+
+import com.poharkar.project.airBnbApp.entity.RepricingState;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface RepricingStateRepository extends JpaRepository<RepricingState,Integer> {
+}
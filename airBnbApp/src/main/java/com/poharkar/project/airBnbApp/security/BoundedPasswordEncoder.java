@@ -0,0 +1,107 @@
+package com.poharkar.project.airBnbApp.security;
+
+import com.poharkar.project.airBnbApp.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Bulkhead around the bcrypt encoder. Hashing runs on a small dedicated pool with a bounded queue, so a burst
+// of logins and sign ups can only use that pool's threads and CPU instead of the request threads.
+// A full queue or a hash that does not finish within maxWait fails fast with ServiceUnavailableException (503).
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitMillis;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedCounter;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long maxWaitMillis,
+                                  MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.maxWaitMillis = maxWaitMillis;
+
+        AtomicInteger threadCount=new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads,threads,0L,TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable->{
+                    Thread thread=new Thread(runnable,"password-hashing-"+threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        // queue depth, active threads and task counts as executor_* meters with name=passwordHashing
+        ExecutorServiceMetrics.monitor(meterRegistry,executor,"passwordHashing");
+        this.encodeTimer = Timer.builder("auth.password.hashing")
+                .description("Time spent in the bcrypt encoder, without the queue wait")
+                .tag("operation","encode")
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("auth.password.hashing")
+                .description("Time spent in the bcrypt encoder, without the queue wait")
+                .tag("operation","matches")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("auth.password.hashing.rejected")
+                .description("Password hashing requests rejected because the queue was full or the wait timed out")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(()->encodeTimer.record(()->delegate.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        Boolean matches=submit(()->matchesTimer.record(()->delegate.matches(rawPassword,encodedPassword)));
+        return Boolean.TRUE.equals(matches);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T submit(Supplier<T> hashing){
+        Future<T> future;
+        try{
+            future=executor.submit(hashing::get);
+        }catch (RejectedExecutionException ex){
+            rejectedCounter.increment();
+            log.warn("Password hashing queue is full, rejecting request");
+            throw new ServiceUnavailableException("Too many login requests, please try again shortly");
+        }
+
+        try{
+            return future.get(maxWaitMillis,TimeUnit.MILLISECONDS);
+        }catch (TimeoutException ex){
+            // a cancelled task that is still queued is skipped by the pool, so nobody hashes for a caller that gave up
+            future.cancel(false);
+            rejectedCounter.increment();
+            throw new ServiceUnavailableException("Too many login requests, please try again shortly");
+        }catch (InterruptedException ex){
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Password check was interrupted");
+        }catch (ExecutionException ex){
+            if(ex.getCause() instanceof RuntimeException runtimeException){
+                throw runtimeException;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
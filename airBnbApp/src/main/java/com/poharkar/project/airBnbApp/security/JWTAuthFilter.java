@@ -22,6 +22,7 @@ import java.io.IOException;
 @Configuration
 @RequiredArgsConstructor
 public class JWTAuthFilter extends OncePerRequestFilter {
+    private static final String BEARER_PREFIX="Bearer ";
 
     private final JWTService jwtService;
     private final UserService userService;
@@ -34,16 +35,18 @@ public class JWTAuthFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         try{
             final String requestTokenHeader=request.getHeader("Authorization");
-            if(requestTokenHeader==null || !requestTokenHeader.startsWith("Bearer")){
+            if(requestTokenHeader==null || !requestTokenHeader.startsWith(BEARER_PREFIX)){
                 filterChain.doFilter(request,response);
                 return;
             }
 
-            String token=requestTokenHeader.split("Bearer ")[1];
-            Long userId=jwtService.getUserIdFromToken(token);
+            String token=requestTokenHeader.substring(BEARER_PREFIX.length());
+            User user=jwtService.getUserFromToken(token);
 
-            if(userId !=null && SecurityContextHolder.getContext().getAuthentication()==null){
-                User user=userService.getUserById(userId);
+            if(SecurityContextHolder.getContext().getAuthentication()==null){
+                if(user==null){
+                    user=userService.getUserById(jwtService.getUserIdFromToken(token));
+                }
                 UsernamePasswordAuthenticationToken authenticationToken=
                         new UsernamePasswordAuthenticationToken(user,null,user.getAuthorities());
                 authenticationToken.setDetails(
@@ -1,34 +1,70 @@
 package com.poharkar.project.airBnbApp.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.poharkar.project.airBnbApp.entity.User;
+import com.poharkar.project.airBnbApp.entity.enums.Role;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+// The key and parser are built once, and verified tokens are kept with their claims until the token expires
+// (jwt.cache.*), so an authenticated request only pays for the signature check on the first use of a token.
 @Service
 public class JWTService {
 
-    @Value("${jwt.secretKey}")
-    private String jwtSecretKey;
+    private final SecretKey secretKey;
+    private final JwtParser jwtParser;
+    private final Cache<String, Claims> verifiedTokens;
+    private final Timer verificationTimer;
 
-    private SecretKey getSecretKey(){
-        return Keys.hmacShaKeyFor(jwtSecretKey.getBytes(StandardCharsets.UTF_8));
+    public JWTService(@Value("${jwt.secretKey}") String jwtSecretKey,
+                      @Value("${jwt.cache.max-size:10000}") long cacheMaxSize,
+                      @Value("${jwt.cache.max-ttl-seconds:600}") long cacheMaxTtlSeconds,
+                      MeterRegistry meterRegistry) {
+        this.secretKey = Keys.hmacShaKeyFor(jwtSecretKey.getBytes(StandardCharsets.UTF_8));
+        this.jwtParser = Jwts.parser()
+                .verifyWith(secretKey)
+                .build();
+        this.verifiedTokens = cacheMaxSize<=0? null : Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new TokenExpiry(TimeUnit.SECONDS.toNanos(cacheMaxTtlSeconds)))
+                .recordStats()
+                .build();
+        if(verifiedTokens!=null){
+            CaffeineCacheMetrics.monitor(meterRegistry,verifiedTokens,"jwtClaims");
+        }
+        this.verificationTimer = Timer.builder("jwt.verification")
+                .description("Signature and expiry check of JWTs that were not in the verified token cache")
+                .register(meterRegistry);
     }
 
     public String generateAccessToken(User user){
         return Jwts.builder()
                 .subject(user.getId().toString())
                 .claim("email",user.getEmail())
-                .claim("roles",user.getRoles().toString())
+                .claim("roles",user.getRoles().stream().map(Role::name).toList())
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis()+1000*60*10))
-                .signWith(getSecretKey())
+                .signWith(secretKey)
                 .compact();
     }
 
@@ -37,16 +73,87 @@ public class JWTService {
                 .subject(user.getId().toString())
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis()+ 1000L *60*60*24*30*6))
-                .signWith(getSecretKey())
+                .signWith(secretKey)
                 .compact();
     }
 
     public Long getUserIdFromToken(String token){
-        Claims claims=Jwts.parser()
-                .verifyWith(getSecretKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return Long.valueOf(claims.getSubject());
+        return Long.valueOf(getClaims(token).getSubject());
+    }
+
+    // The principal of an access token, built from its signed claims without touching the database.
+    // Returns null for tokens without the email and roles claims, like refresh tokens.
+    public User getUserFromToken(String token){
+        Claims claims=getClaims(token);
+        String email=claims.get("email",String.class);
+        Set<Role> roles=parseRoles(claims.get("roles"));
+        if(email==null || roles==null){
+            return null;
+        }
+
+        User user=new User();
+        user.setId(Long.valueOf(claims.getSubject()));
+        user.setEmail(email);
+        user.setRoles(roles);
+        return user;
+    }
+
+    // Roles are a JSON array, tokens issued before that carry the Set.toString() form "[GUEST, HOTEL_MANAGER]"
+    private Set<Role> parseRoles(Object rolesClaim){
+        List<String> roleNames;
+        if(rolesClaim instanceof Collection<?> values){
+            roleNames=values.stream().map(String::valueOf).toList();
+        }else if(rolesClaim instanceof String value){
+            String names=value.replace("[","").replace("]","").trim();
+            roleNames=names.isEmpty()? List.of() : Arrays.stream(names.split(",")).map(String::trim).toList();
+        }else{
+            return null;
+        }
+
+        Set<Role> roles=EnumSet.noneOf(Role.class);
+        for(String roleName: roleNames){
+            try{
+                roles.add(Role.valueOf(roleName));
+            }catch (IllegalArgumentException ex){
+                throw new MalformedJwtException("Unknown role in token: "+roleName);
+            }
+        }
+        return roles;
+    }
+
+    // Throws JwtException for invalid or expired tokens, those are never cached
+    public Claims getClaims(String token){
+        if(verifiedTokens==null){
+            return verify(token);
+        }
+        return verifiedTokens.get(token,this::verify);
+    }
+
+    private Claims verify(String token){
+        return verificationTimer.record(()->jwtParser.parseSignedClaims(token).getPayload());
+    }
+
+    // Entries live until the token's exp, capped at maxTtlNanos so long-lived refresh tokens do not pin the cache
+    private record TokenExpiry(long maxTtlNanos) implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String token, Claims claims, long currentTime) {
+            Date expiration=claims.getExpiration();
+            if(expiration==null){
+                return maxTtlNanos;
+            }
+            long ttlNanos=TimeUnit.MILLISECONDS.toNanos(expiration.getTime()-System.currentTimeMillis());
+            return Math.max(0,Math.min(ttlNanos,maxTtlNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
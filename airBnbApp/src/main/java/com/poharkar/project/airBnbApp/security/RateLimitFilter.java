@@ -0,0 +1,126 @@
+package com.poharkar.project.airBnbApp.security;
+
+import com.poharkar.project.airBnbApp.entity.User;
+import com.poharkar.project.airBnbApp.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.PathContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Token bucket rate limits for the routes in rate-limit.routes, kept in memory per client IP and per user.
+// Runs after JWTAuthFilter so authenticated requests are limited by user id. Behind a proxy the client IP
+// comes from getRemoteAddr, so server.forward-headers-strategy has to be set for X-Forwarded-For to be used.
+@Component
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final boolean enabled;
+    private final List<RouteLimiter> routeLimiters=new ArrayList<>();
+
+    @Autowired
+    @Qualifier("handlerExceptionResolver")
+    private HandlerExceptionResolver handlerExceptionResolver;
+
+    public RateLimitFilter(RateLimitProperties rateLimitProperties, MeterRegistry meterRegistry) {
+        this.enabled = rateLimitProperties.isEnabled();
+        for(RateLimitProperties.Route route: rateLimitProperties.getRoutes()){
+            TokenBucketRateLimiter ipLimiter=new TokenBucketRateLimiter(route.getCapacity(),route.getRefillPerSecond());
+            TokenBucketRateLimiter userLimiter=new TokenBucketRateLimiter(
+                    route.getUserCapacity()==null? route.getCapacity() : route.getUserCapacity(),
+                    route.getUserRefillPerSecond()==null? route.getRefillPerSecond() : route.getUserRefillPerSecond());
+
+            Counter rejectedCounter=Counter.builder("http.rate.limit.rejected")
+                    .description("Requests rejected with 429 by the rate limit filter")
+                    .tag("route",route.getPattern())
+                    .register(meterRegistry);
+            Gauge.builder("http.rate.limit.buckets",()->ipLimiter.size()+userLimiter.size())
+                    .description("Client buckets currently held in memory")
+                    .tag("route",route.getPattern())
+                    .register(meterRegistry);
+
+            routeLimiters.add(new RouteLimiter(PathPatternParser.defaultInstance.parse(route.getPattern()),
+                    route.getMethod()==null || route.getMethod().isBlank()? null : route.getMethod().toUpperCase(),
+                    ipLimiter,userLimiter,rejectedCounter));
+        }
+        log.info("Rate limiting {} routes",enabled? routeLimiters.size() : 0);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || routeLimiters.isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        RouteLimiter routeLimiter=findRouteLimiter(request);
+        if(routeLimiter==null){
+            filterChain.doFilter(request,response);
+            return;
+        }
+
+        long waitMillis;
+        Authentication authentication=SecurityContextHolder.getContext().getAuthentication();
+        if(authentication!=null && authentication.getPrincipal() instanceof User user){
+            waitMillis=routeLimiter.userLimiter().tryAcquire(user.getId().toString());
+        }else{
+            waitMillis=routeLimiter.ipLimiter().tryAcquire(request.getRemoteAddr());
+        }
+
+        if(waitMillis>0){
+            long retryAfterSeconds=(waitMillis+999)/1000;
+            routeLimiter.rejectedCounter().increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER,String.valueOf(retryAfterSeconds));
+            handlerExceptionResolver.resolveException(request,response,null,
+                    new TooManyRequestsException("Too many requests, please retry after "+retryAfterSeconds+" seconds"));
+            return;
+        }
+        filterChain.doFilter(request,response);
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval-ms:60000}")
+    public void evictIdleBuckets(){
+        int evictedCount=0;
+        for(RouteLimiter routeLimiter: routeLimiters){
+            evictedCount+=routeLimiter.ipLimiter().evictIdleBuckets();
+            evictedCount+=routeLimiter.userLimiter().evictIdleBuckets();
+        }
+        if(evictedCount>0){
+            log.info("Evicted {} idle rate limit buckets",evictedCount);
+        }
+    }
+
+    private RouteLimiter findRouteLimiter(HttpServletRequest request){
+        PathContainer path=PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for(RouteLimiter routeLimiter: routeLimiters){
+            if((routeLimiter.method()==null || routeLimiter.method().equals(request.getMethod()))
+                    && routeLimiter.pattern().matches(path)){
+                return routeLimiter;
+            }
+        }
+        return null;
+    }
+
+    private record RouteLimiter(PathPattern pattern, String method, TokenBucketRateLimiter ipLimiter,
+                                TokenBucketRateLimiter userLimiter, Counter rejectedCounter) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.poharkar.project.airBnbApp.security;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// rate-limit.* in application.properties, the first route whose pattern and method match a request limits it
+@Data
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled=true;
+
+    private List<Route> routes=new ArrayList<>();
+
+    @Data
+    public static class Route {
+        // PathPattern syntax, e.g. /api/v1/hotels/*/info
+        private String pattern;
+
+        // any method when empty
+        private String method;
+
+        // per client IP
+        private int capacity=20;
+        private double refillPerSecond=5;
+
+        // per authenticated user, the IP limits apply when not set
+        private Integer userCapacity;
+        private Double userRefillPerSecond;
+    }
+}
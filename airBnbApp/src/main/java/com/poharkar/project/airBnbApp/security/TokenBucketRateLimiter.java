@@ -0,0 +1,96 @@
+package com.poharkar.project.airBnbApp.security;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Token buckets per client key without locks. A bucket is one AtomicLong holding the time of its last refill
+// (millis since the limiter was created, upper 42 bits) and its tokens in thousandths (lower 22 bits),
+// so taking a token is a read, some arithmetic and one CAS. ConcurrentHashMap stripes the buckets across bins.
+public class TokenBucketRateLimiter {
+
+    private static final int TOKEN_BITS=22;
+    private static final long TOKEN_MASK=(1L<<TOKEN_BITS)-1;
+    private static final long ONE_TOKEN=1000;
+    public static final int MAX_CAPACITY=(int) (TOKEN_MASK/ONE_TOKEN);
+
+    private final long capacity;
+    // thousandths of a token per millisecond, the same number as tokens per second
+    private final double refillRate;
+    private final long fullRefillMillis;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, AtomicLong> buckets=new ConcurrentHashMap<>();
+
+    public TokenBucketRateLimiter(int capacity, double refillPerSecond){
+        this(capacity,refillPerSecond,millisSince(System.nanoTime()));
+    }
+
+    TokenBucketRateLimiter(int capacity, double refillPerSecond, LongSupplier clock){
+        if(capacity<1 || capacity>MAX_CAPACITY){
+            throw new IllegalArgumentException("Rate limit capacity must be between 1 and "+MAX_CAPACITY+": "+capacity);
+        }
+        if(refillPerSecond<=0){
+            throw new IllegalArgumentException("Rate limit refill per second must be positive: "+refillPerSecond);
+        }
+        this.capacity=capacity*ONE_TOKEN;
+        this.refillRate=refillPerSecond;
+        this.fullRefillMillis=(long) Math.ceil(this.capacity/refillRate);
+        this.clock=clock;
+    }
+
+    // Takes a token from the key's bucket. Returns 0 when it got one, otherwise the millis until the next token.
+    public long tryAcquire(String key){
+        long now=clock.getAsLong();
+        AtomicLong bucket=buckets.get(key);
+        if(bucket==null){
+            bucket=buckets.computeIfAbsent(key,k->new AtomicLong(pack(now,capacity)));
+        }
+
+        while(true){
+            long state=bucket.get();
+            long lastRefill=state>>>TOKEN_BITS;
+            long tokens=state&TOKEN_MASK;
+
+            long elapsed=now-lastRefill;
+            if(elapsed>=fullRefillMillis){
+                tokens=capacity;
+                lastRefill=now;
+            }else if(elapsed>0){
+                // less than a thousandth of a token is left for later instead of being rounded away
+                long refilled=(long) (elapsed*refillRate);
+                if(refilled>0){
+                    tokens=Math.min(capacity,tokens+refilled);
+                    lastRefill=now;
+                }
+            }
+
+            if(tokens<ONE_TOKEN){
+                return Math.max(1,(long) Math.ceil((ONE_TOKEN-tokens)/refillRate));
+            }
+            if(bucket.compareAndSet(state,pack(lastRefill,tokens-ONE_TOKEN))){
+                return 0;
+            }
+        }
+    }
+
+    // Drops the buckets that have been idle long enough to be full again, a new bucket is identical to them.
+    // A request racing with the removal may take its token from the dropped bucket, which costs at most one extra token.
+    public int evictIdleBuckets(){
+        long now=clock.getAsLong();
+        int sizeBefore=buckets.size();
+        buckets.values().removeIf(bucket->now-(bucket.get()>>>TOKEN_BITS)>=fullRefillMillis);
+        return sizeBefore-buckets.size();
+    }
+
+    public int size(){
+        return buckets.size();
+    }
+
+    private static long pack(long time, long tokens){
+        return (time<<TOKEN_BITS)|tokens;
+    }
+
+    private static LongSupplier millisSince(long startNanos){
+        return ()->(System.nanoTime()-startNanos)/1_000_000;
+    }
+}
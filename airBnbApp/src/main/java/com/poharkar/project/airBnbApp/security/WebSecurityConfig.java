@@ -1,12 +1,15 @@
 package com.poharkar.project.airBnbApp.security;
 
 import com.poharkar.project.airBnbApp.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.access.AccessDeniedException;
@@ -27,10 +30,12 @@ import java.io.IOException;
 
 @Configuration
 @EnableWebSecurity
+@EnableConfigurationProperties(RateLimitProperties.class)
 @RequiredArgsConstructor
 public class WebSecurityConfig {
 
     private final JWTAuthFilter jwtAuthFilter;
+    private final RateLimitFilter rateLimitFilter;
 
 
     @Autowired
@@ -44,10 +49,12 @@ public class WebSecurityConfig {
                 .sessionManagement(session->session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, UsernamePasswordAuthenticationFilter.class)
                 .authorizeHttpRequests(auth->auth
                         .requestMatchers("/api/v1/admin/**").hasRole("HOTEL_MANAGER")
                         .requestMatchers("/api/v1/booking/**").authenticated()
                         .requestMatchers("/api/v1/users/**").authenticated()
+                        .requestMatchers("/actuator/metrics/**").hasRole("HOTEL_MANAGER")
 
                         .anyRequest().permitAll()
                 )
@@ -57,8 +64,11 @@ public class WebSecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder(){
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${auth.password-hashing.threads:2}") int threads,
+                                           @Value("${auth.password-hashing.queue-capacity:64}") int queueCapacity,
+                                           @Value("${auth.password-hashing.max-wait-ms:2000}") long maxWaitMillis,
+                                           MeterRegistry meterRegistry){
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(),threads,queueCapacity,maxWaitMillis,meterRegistry);
     }
 
     @Bean
@@ -0,0 +1,153 @@
+package com.poharkar.project.airBnbApp.service;
+
+import com.poharkar.project.airBnbApp.entity.Booking;
+import com.poharkar.project.airBnbApp.entity.enums.BookingStatus;
+import com.poharkar.project.airBnbApp.repository.BookingRepository;
+import com.poharkar.project.airBnbApp.repository.InventoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.poharkar.project.airBnbApp.service.BookingServiceImpl.BOOKING_HOLD_GRACE_MINUTES;
+import static com.poharkar.project.airBnbApp.service.BookingServiceImpl.BOOKING_HOLD_MINUTES;
+import static com.poharkar.project.airBnbApp.service.BookingServiceImpl.PAYMENT_SESSION_MINUTES;
+
+@Service
+@Slf4j
+public class BookingExpiryService {
+    // Schedular to expire abandoned bookings and give their reserved rooms back to the inventory
+
+    public static final Set<BookingStatus> EXPIRABLE_STATUSES=Set.of(BookingStatus.RESERVED,BookingStatus.GUEST_ADDED);
+    // a checkout that was started and never paid, Stripe expires its session PAYMENT_SESSION_MINUTES after it was created
+    public static final Set<BookingStatus> PAYMENT_PENDING_STATUSES=Set.of(BookingStatus.PAYMENT_PENDING);
+
+    private final BookingRepository bookingRepository;
+    private final InventoryRepository inventoryRepository;
+    private final InventoryLedger inventoryLedger;
+    private final HotelAvailabilityIndex hotelAvailabilityIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter releasedHolds;
+    private final Timer sweepTimer;
+
+    @Value("${booking.expiry.sweep.chunk-size:500}")
+    private int chunkSize;
+
+    public BookingExpiryService(BookingRepository bookingRepository,
+                                InventoryRepository inventoryRepository,
+                                InventoryLedger inventoryLedger,
+                                HotelAvailabilityIndex hotelAvailabilityIndex,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry) {
+        this.bookingRepository = bookingRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.inventoryLedger = inventoryLedger;
+        this.hotelAvailabilityIndex = hotelAvailabilityIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.releasedHolds = Counter.builder("booking.holds.released")
+                .description("Expired booking holds whose reserved rooms were released")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("booking.expiry.sweep")
+                .description("Duration of one pass of the booking expiry sweeper")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${booking.expiry.sweep.fixed-delay-ms:60000}")
+    public void sweepExpiredBookings(){
+        long startTime=System.nanoTime();
+        LocalDateTime now=LocalDateTime.now();
+
+        int releasedCount=sweep(EXPIRABLE_STATUSES,now.minusMinutes(BOOKING_HOLD_MINUTES+BOOKING_HOLD_GRACE_MINUTES));
+        // payment can be initiated until the hold ends, and the checkout session then stays open for PAYMENT_SESSION_MINUTES
+        releasedCount+=sweep(PAYMENT_PENDING_STATUSES,
+                now.minusMinutes(BOOKING_HOLD_MINUTES+PAYMENT_SESSION_MINUTES+BOOKING_HOLD_GRACE_MINUTES));
+
+        long elapsed=System.nanoTime()-startTime;
+        sweepTimer.record(elapsed,TimeUnit.NANOSECONDS);
+        if(releasedCount>0){
+            log.info("Released {} expired booking holds in {} ms",releasedCount,elapsed/1_000_000);
+        }
+    }
+
+    // Expires every booking in one of the statuses created before expiredBefore, returns the count expired
+    private int sweep(Set<BookingStatus> statuses, LocalDateTime expiredBefore){
+        // keyset over (createdAt, id), every chunk starts where the previous one stopped
+        LocalDateTime lastCreatedAt=LocalDateTime.of(1970,1,1,0,0);
+        Long lastId=0L;
+        int releasedCount=0;
+
+        while(true){
+            List<Booking> bookings=bookingRepository.findExpiredBookings(statuses,expiredBefore,
+                    lastCreatedAt,lastId,PageRequest.of(0,chunkSize));
+            if(bookings.isEmpty()){
+                break;
+            }
+
+            releasedCount+=expireBookings(bookings.stream().map(Booking::getId).toList(),statuses);
+
+            Booking last=bookings.getLast();
+            lastCreatedAt=last.getCreatedAt();
+            lastId=last.getId();
+
+            if(bookings.size()<chunkSize){
+                break;
+            }
+        }
+        return releasedCount;
+    }
+
+    // Expires the given bookings if they are still on hold and releases their reserved rooms, returns the count expired
+    public int expireBookings(Collection<Long> bookingIds){
+        return expireBookings(bookingIds,EXPIRABLE_STATUSES);
+    }
+
+    // Same for the bookings that are still in one of the given statuses
+    private int expireBookings(Collection<Long> bookingIds, Set<BookingStatus> statuses){
+        if(bookingIds.isEmpty()){
+            return 0;
+        }
+
+        Integer expiredCount=transactionTemplate.execute(status->{
+            List<Booking> bookings=bookingRepository.findAndLockBookings(bookingIds,statuses);
+            if(bookings.isEmpty()){
+                return 0;
+            }
+
+            List<Long> lockedIds=bookings.stream().map(Booking::getId).toList();
+            inventoryRepository.releaseReservedInventory(lockedIds);
+            bookingRepository.updateBookingStatus(lockedIds,BookingStatus.EXPIRED);
+
+            if(hotelAvailabilityIndex.needsCity()){
+                // one statement for the cities of the chunk instead of loading every hotel
+                Map<Long, String> cities=new HashMap<>();
+                bookingRepository.findHotelCities(lockedIds)
+                        .forEach(bookingCity->cities.put(bookingCity.getBookingId(),bookingCity.getCity()));
+                bookings.forEach(booking->hotelAvailabilityIndex.refreshAfterCommit(cities.get(booking.getId()),
+                        booking.getRoom().getId(),booking.getCheckInDate(),booking.getCheckOutDate()));
+            }
+
+            bookings.stream()
+                    .map(booking->booking.getRoom().getId())
+                    .distinct()
+                    .forEach(inventoryLedger::evictAfterCommit);
+            return lockedIds.size();
+        });
+
+        int count=expiredCount==null? 0 : expiredCount;
+        releasedHolds.increment(count);
+        return count;
+    }
+}
@@ -0,0 +1,124 @@
+package com.poharkar.project.airBnbApp.service;
+
+import com.poharkar.project.airBnbApp.dto.BookingExportRowDto;
+import com.poharkar.project.airBnbApp.entity.Hotel;
+import com.poharkar.project.airBnbApp.entity.User;
+import com.poharkar.project.airBnbApp.entity.enums.BookingStatus;
+import com.poharkar.project.airBnbApp.exception.BadRequestException;
+import com.poharkar.project.airBnbApp.exception.ResourceNotFoundException;
+import com.poharkar.project.airBnbApp.repository.BookingRepository;
+import com.poharkar.project.airBnbApp.repository.HotelRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import static com.poharkar.project.airBnbApp.util.AppUtils.getCurrentUser;
+
+// Streams the bookings of a hotel as CSV or NDJSON straight into the response.
+// Rows come from a fetch-size cursor in a read-only transaction and are written one by one,
+// so memory does not grow with the number of bookings.
+@Service
+@Slf4j
+public class BookingExportService {
+
+    public enum ExportFormat {
+        CSV, NDJSON;
+
+        // Matches the request parameter ignoring case, so format=csv works as well as format=CSV
+        public static ExportFormat from(String format){
+            for(ExportFormat exportFormat: values()){
+                if(exportFormat.name().equalsIgnoreCase(format.trim())) return exportFormat;
+            }
+            throw new BadRequestException("Unsupported export format: "+format+", use csv or ndjson");
+        }
+    }
+
+    private static final String CSV_HEADER="id,roomId,userId,roomsCount,checkInDate,checkOutDate,bookingStatus,amount,createdAt";
+
+    private final BookingRepository bookingRepository;
+    private final HotelRepository hotelRepository;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    public BookingExportService(BookingRepository bookingRepository,
+                                HotelRepository hotelRepository,
+                                PlatformTransactionManager transactionManager) {
+        this.bookingRepository = bookingRepository;
+        this.hotelRepository = hotelRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    // Checks the owner up front, the returned body runs later on the async request thread
+    public StreamingResponseBody exportBookings(Long hotelId, LocalDate startDate, LocalDate endDate,
+                                                BookingStatus status, ExportFormat format){
+        Hotel hotel=hotelRepository.findById(hotelId).orElseThrow(()->new ResourceNotFoundException("Hotel not found with hotel ID: "+hotelId));
+
+        User user=getCurrentUser();
+        log.info("Exporting bookings for hotel with ID: {} as {}",hotelId,format);
+        if(!user.getId().equals(hotel.getOwner().getId()))
+            throw new AccessDeniedException("You are not owner of hotel with ID: "+hotelId);
+
+        LocalDateTime startDateTime=(startDate==null? hotel.getCreatedAt().toLocalDate() : startDate).atStartOfDay();
+        LocalDateTime endDateTime=(endDate==null? LocalDate.now() : endDate).atTime(LocalTime.MAX);
+
+        return outputStream->{
+            Writer writer=new BufferedWriter(new OutputStreamWriter(outputStream,StandardCharsets.UTF_8));
+            if(format==ExportFormat.CSV){
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+
+            Integer rowCount=readOnlyTransactionTemplate.execute(transactionStatus->{
+                int count=0;
+                try(Stream<BookingExportRowDto> rows=bookingRepository.streamBookingsForExport(hotelId,startDateTime,endDateTime,status)){
+                    Iterator<BookingExportRowDto> iterator=rows.iterator();
+                    while(iterator.hasNext()){
+                        BookingExportRowDto row=iterator.next();
+                        writer.write(format==ExportFormat.CSV? toCsv(row) : toJson(row));
+                        writer.write('\n');
+                        count++;
+                    }
+                }catch (IOException ex){
+                    throw new UncheckedIOException(ex);
+                }
+                return count;
+            });
+            writer.flush();
+            log.info("Exported {} bookings for hotel with ID: {}",rowCount,hotelId);
+        };
+    }
+
+    private String toCsv(BookingExportRowDto row){
+        return row.getId()+","+row.getRoomId()+","+row.getUserId()+","+row.getRoomsCount()+","
+                +row.getCheckInDate()+","+row.getCheckOutDate()+","+row.getBookingStatus()+","
+                +row.getAmount().toPlainString()+","+row.getCreatedAt();
+    }
+
+    // every value is a number, a date or an enum name, so nothing needs escaping
+    private String toJson(BookingExportRowDto row){
+        return "{\"id\":"+row.getId()
+                +",\"roomId\":"+row.getRoomId()
+                +",\"userId\":"+row.getUserId()
+                +",\"roomsCount\":"+row.getRoomsCount()
+                +",\"checkInDate\":\""+row.getCheckInDate()+"\""
+                +",\"checkOutDate\":\""+row.getCheckOutDate()+"\""
+                +",\"bookingStatus\":\""+row.getBookingStatus()+"\""
+                +",\"amount\":"+row.getAmount().toPlainString()
+                +",\"createdAt\":\""+row.getCreatedAt()+"\"}";
+    }
+}
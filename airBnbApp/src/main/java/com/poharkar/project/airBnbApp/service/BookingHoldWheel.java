@@ -0,0 +1,232 @@
+package com.poharkar.project.airBnbApp.service;
+
+import com.poharkar.project.airBnbApp.entity.Booking;
+import com.poharkar.project.airBnbApp.repository.BookingRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.poharkar.project.airBnbApp.service.BookingExpiryService.EXPIRABLE_STATUSES;
+import static com.poharkar.project.airBnbApp.service.BookingServiceImpl.BOOKING_HOLD_GRACE_MINUTES;
+import static com.poharkar.project.airBnbApp.service.BookingServiceImpl.BOOKING_HOLD_MINUTES;
+
+// Hashed timing wheel that expires booking holds at their deadline (booking.hold.wheel.enabled).
+// Every hold is a node in a doubly linked bucket list plus an entry in a map by booking id,
+// so scheduling and cancelling are O(1) and a tick only visits the holds of one bucket.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BookingHoldWheel {
+
+    private final BookingRepository bookingRepository;
+    private final BookingExpiryService bookingExpiryService;
+
+    @Value("${booking.hold.wheel.enabled:true}")
+    private boolean enabled;
+
+    @Value("${booking.hold.wheel.tick-ms:1000}")
+    private long tickMillis;
+
+    @Value("${booking.hold.wheel.size:1024}")
+    private int wheelSize;
+
+    private HoldNode[] buckets;
+    private int mask;
+    private final Map<Long, HoldNode> holds=new HashMap<>();
+    private long lastTick;
+    private ScheduledExecutorService ticker;
+
+    @PostConstruct
+    void start(){
+        if(!enabled) return;
+
+        // round up to a power of two so the bucket index is a mask instead of a modulo
+        int size=Integer.highestOneBit(Math.max(wheelSize,2)-1)<<1;
+        buckets=new HoldNode[size];
+        mask=size-1;
+        lastTick=System.currentTimeMillis()/tickMillis;
+
+        ticker=Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("booking-hold-wheel").daemon().factory());
+        ticker.scheduleAtFixedRate(this::advance,tickMillis,tickMillis,TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop(){
+        if(ticker!=null){
+            ticker.shutdownNow();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildFromBookings(){
+        if(!enabled) return;
+
+        LocalDateTime createdAfter=LocalDateTime.now().minusMinutes(BOOKING_HOLD_MINUTES+BOOKING_HOLD_GRACE_MINUTES);
+        LocalDateTime lastCreatedAt=createdAfter;
+        Long lastId=0L;
+        int count=0;
+
+        while(true){
+            List<Booking> bookings=bookingRepository.findBookingsOnHold(EXPIRABLE_STATUSES,createdAfter,
+                    lastCreatedAt,lastId,PageRequest.of(0,500));
+            if(bookings.isEmpty()){
+                break;
+            }
+            for(Booking booking: bookings){
+                schedule(booking.getId(),booking.getCreatedAt());
+            }
+            count+=bookings.size();
+
+            Booking last=bookings.getLast();
+            lastCreatedAt=last.getCreatedAt();
+            lastId=last.getId();
+        }
+        log.info("Rebuilt booking hold wheel with {} holds",count);
+    }
+
+    public void scheduleAfterCommit(Long bookingId, LocalDateTime createdAt){
+        if(!enabled) return;
+
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    schedule(bookingId,createdAt);
+                }
+            });
+        }else{
+            schedule(bookingId,createdAt);
+        }
+    }
+
+    public synchronized void schedule(Long bookingId, LocalDateTime createdAt){
+        if(!enabled) return;
+
+        long deadline=createdAt.plusMinutes(BOOKING_HOLD_MINUTES+BOOKING_HOLD_GRACE_MINUTES)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long deadlineTick=Math.max(deadline/tickMillis,lastTick+1);
+
+        HoldNode node=holds.get(bookingId);
+        if(node!=null){
+            unlink(node);
+        }else{
+            node=new HoldNode(bookingId);
+            holds.put(bookingId,node);
+        }
+        node.deadlineTick=deadlineTick;
+        link(node);
+    }
+
+    public void cancelAfterCommit(Long bookingId){
+        if(!enabled) return;
+
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cancel(bookingId);
+                }
+            });
+        }else{
+            cancel(bookingId);
+        }
+    }
+
+    public synchronized void cancel(Long bookingId){
+        if(!enabled) return;
+
+        HoldNode node=holds.remove(bookingId);
+        if(node!=null){
+            unlink(node);
+        }
+    }
+
+    private void advance(){
+        List<Long> expiredIds=collectExpired(System.currentTimeMillis()/tickMillis);
+        if(expiredIds.isEmpty()) return;
+
+        try{
+            int expiredCount=bookingExpiryService.expireBookings(expiredIds);
+            log.info("Booking hold wheel expired {} of {} due holds",expiredCount,expiredIds.size());
+        }catch (Exception ex){
+            // the sweeper picks these up on its next pass
+            log.error("Failed to expire {} booking holds",expiredIds.size(),ex);
+        }
+    }
+
+    private synchronized List<Long> collectExpired(long currentTick){
+        List<Long> expiredIds=new ArrayList<>();
+
+        // catch up on every tick since the last run, but never walk the wheel more than once
+        long firstTick=Math.max(lastTick+1,currentTick-mask);
+        for(long tick=firstTick;tick<=currentTick;tick++){
+            HoldNode node=buckets[(int) (tick & mask)];
+            while(node!=null){
+                HoldNode next=node.next;
+                if(node.deadlineTick<=currentTick){
+                    unlink(node);
+                    holds.remove(node.bookingId);
+                    expiredIds.add(node.bookingId);
+                }
+                node=next;
+            }
+        }
+        lastTick=Math.max(lastTick,currentTick);
+        return expiredIds;
+    }
+
+    private void link(HoldNode node){
+        int index=(int) (node.deadlineTick & mask);
+        node.prev=null;
+        node.next=buckets[index];
+        if(node.next!=null){
+            node.next.prev=node;
+        }
+        buckets[index]=node;
+    }
+
+    private void unlink(HoldNode node){
+        if(node.prev!=null){
+            node.prev.next=node.next;
+        }else{
+            int index=(int) (node.deadlineTick & mask);
+            if(buckets[index]==node){
+                buckets[index]=node.next;
+            }
+        }
+        if(node.next!=null){
+            node.next.prev=node.prev;
+        }
+        node.prev=null;
+        node.next=null;
+    }
+
+    private static class HoldNode {
+        private final Long bookingId;
+        private long deadlineTick;
+        private HoldNode prev;
+        private HoldNode next;
+
+        HoldNode(Long bookingId){
+            this.bookingId=bookingId;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.poharkar.project.airBnbApp.service;
 
 import com.poharkar.project.airBnbApp.dto.BookingDto;
 import com.poharkar.project.airBnbApp.dto.BookingRequest;
+import com.poharkar.project.airBnbApp.dto.CursorPageDto;
 import com.poharkar.project.airBnbApp.dto.GuestDto;
 import com.poharkar.project.airBnbApp.dto.HotelReportDto;
 import com.stripe.model.Event;
@@ -25,7 +26,11 @@ public interface BookingService {
 
     List<BookingDto> getAllBookingsByHotelId(Long hotelId);
 
+    CursorPageDto<BookingDto> getBookingsByHotelId(Long hotelId, String cursor, int size);
+
     HotelReportDto getHotelReport(Long hotelId, LocalDate startDate, LocalDate endDate);
 
     List<BookingDto> getMyBookings();
+
+    CursorPageDto<BookingDto> getMyBookings(String cursor, int size);
 }
@@ -2,14 +2,18 @@ package com.poharkar.project.airBnbApp.service;
 
 import com.poharkar.project.airBnbApp.dto.BookingDto;
 import com.poharkar.project.airBnbApp.dto.BookingRequest;
+import com.poharkar.project.airBnbApp.dto.CursorPageDto;
 import com.poharkar.project.airBnbApp.dto.GuestDto;
 import com.poharkar.project.airBnbApp.dto.HotelReportDto;
 import com.poharkar.project.airBnbApp.entity.*;
 import com.poharkar.project.airBnbApp.entity.enums.BookingStatus;
+import com.poharkar.project.airBnbApp.entity.enums.ReservationMode;
+import com.poharkar.project.airBnbApp.exception.BadRequestException;
 import com.poharkar.project.airBnbApp.exception.ResourceNotFoundException;
 import com.poharkar.project.airBnbApp.exception.UnAuthorisedException;
 import com.poharkar.project.airBnbApp.repository.*;
 import com.poharkar.project.airBnbApp.strategy.PricingService;
+import com.poharkar.project.airBnbApp.util.CursorUtils;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Event;
 import com.stripe.model.Refund;
@@ -20,6 +24,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -29,6 +35,7 @@ import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -39,6 +46,15 @@ import static com.poharkar.project.airBnbApp.util.AppUtils.getCurrentUser;
 @RequiredArgsConstructor
 @Slf4j
 public class BookingServiceImpl implements BookingService{
+    public static final int BOOKING_HOLD_MINUTES=10;
+    // holds are expired this long after the user stops being able to pay for them
+    public static final int BOOKING_HOLD_GRACE_MINUTES=2;
+    // checkout sessions expire this long after payment is initiated, 30 minutes is the shortest Stripe accepts
+    public static final int PAYMENT_SESSION_MINUTES=30;
+    private static final int MAX_BOOKING_PAGE_SIZE=100;
+    // stands in for "no cursor yet", later than any createdAt and still a valid Postgres timestamp
+    private static final LocalDateTime FIRST_PAGE_CREATED_AT=LocalDateTime.of(9999,12,31,0,0);
+
     private final GuestRepository guestRepository;
     private final BookingRepository bookingRepository;
     private final HotelRepository hotelRepository;
@@ -47,40 +63,45 @@ public class BookingServiceImpl implements BookingService{
     private final ModelMapper modelMapper;
     private final CheckoutService checkoutService;
     private final PricingService pricingService;
+    private final InventoryLedger inventoryLedger;
+    private final BookingHoldWheel bookingHoldWheel;
+    private final HotelAvailabilityIndex hotelAvailabilityIndex;
+    private final RepricingTracker repricingTracker;
+    private final PriceQuoteService priceQuoteService;
+    private final HotelRevenueRollupService hotelRevenueRollupService;
 
     @Value("${frontend.url}")
     private String frontendUrl;
 
+    @Value("${inventory.reservation.mode:PESSIMISTIC}")
+    private ReservationMode reservationMode;
+
     @Override
     @Transactional
     public BookingDto initialiseBooking(BookingRequest bookingRequest) {
         log.info("initialising Booking in hotel: {}, room: {}, date: {} to {}", bookingRequest.getHotelId(),bookingRequest.getRoomId(),bookingRequest.getCheckInDate(),bookingRequest.getCheckOutDate());
+        // one room unless asked otherwise, the same default the quote and the search use
+        if(bookingRequest.getRoomsCount()==null){
+            bookingRequest.setRoomsCount(1);
+        }
         Hotel hotel=hotelRepository.findById(bookingRequest.getHotelId())
                 .orElseThrow(()->new ResourceNotFoundException("Hotel not found with ID "+bookingRequest.getHotelId()));
 
         Room room=roomRepository.findById(bookingRequest.getRoomId())
                 .orElseThrow(()->new ResourceNotFoundException("Room not found with ID "+bookingRequest.getRoomId()));
 
-        List<Inventory>inventoryList=inventoryRepository.findAndLockAvailableInventory(room.getId(),
-                bookingRequest.getCheckInDate(),bookingRequest.getCheckOutDate(),bookingRequest.getRoomsCount());
-
-        long daysCount= ChronoUnit.DAYS.between(bookingRequest.getCheckInDate(),bookingRequest.getCheckOutDate())+1;
-        if(inventoryList.size()!=daysCount){
-            throw new IllegalStateException("Room is not available anymore");
-        }
-
-//        Reserve the room/ update the booked count of inventories
-
-        inventoryRepository.initBooking(room.getId(), bookingRequest.getCheckInDate(),
-                bookingRequest.getCheckOutDate(), bookingRequest.getRoomsCount());
+        List<Inventory> inventoryList=reserveInventory(room, bookingRequest);
 
 
 //        Create the booking
 
         // Calculate dynamic amount
 
-        BigDecimal priceForOneRoom = pricingService.calculateTotalPrice(inventoryList);
-        BigDecimal totalPrice = priceForOneRoom.multiply(BigDecimal.valueOf(bookingRequest.getRoomsCount()));
+        // a valid quote fixes the price, otherwise price the reserved inventory
+        BigDecimal totalPrice = priceQuoteService.findQuotedPrice(bookingRequest).orElseGet(() -> {
+            BigDecimal priceForOneRoom = pricingService.calculateTotalPrice(inventoryList);
+            return priceForOneRoom.multiply(BigDecimal.valueOf(bookingRequest.getRoomsCount()));
+        });
 
         Booking booking=Booking.builder()
                 .bookingStatus(BookingStatus.RESERVED)
@@ -93,6 +114,7 @@ public class BookingServiceImpl implements BookingService{
                 .amount(totalPrice)
                 .build();
         booking=bookingRepository.save(booking);
+        bookingHoldWheel.scheduleAfterCommit(booking.getId(),booking.getCreatedAt());
 
         return modelMapper.map(booking,BookingDto.class);
     }
@@ -134,7 +156,7 @@ public class BookingServiceImpl implements BookingService{
     @Transactional
     public String initiatePayment(Long bookingId) {
 
-        Booking booking=bookingRepository.findById(bookingId)
+        Booking booking=bookingRepository.findAndLockById(bookingId)
                 .orElseThrow(()->new ResourceNotFoundException("Booking not found with id: "+bookingId));
 
         User user=getCurrentUser();
@@ -146,11 +168,17 @@ public class BookingServiceImpl implements BookingService{
             throw new IllegalStateException("Booking has already expired");
         }
 
+        // the row lock keeps the expiry sweep away until the status below is committed
+        if(!BookingExpiryService.EXPIRABLE_STATUSES.contains(booking.getBookingStatus())){
+            throw new IllegalStateException("Booking is not on hold, can not initiate payment");
+        }
+
         String sessionUrl=checkoutService
                 .getCheckoutSession(booking,frontendUrl+"/payments/success",frontendUrl+"/payments/failure");
 
         booking.setBookingStatus(BookingStatus.PAYMENT_PENDING);
         bookingRepository.save(booking);
+        bookingHoldWheel.cancelAfterCommit(booking.getId());
         return sessionUrl;
     }
 
@@ -163,17 +191,40 @@ public class BookingServiceImpl implements BookingService{
 
             String sessionId = session.getId();
             Booking booking =
-                    bookingRepository.findByPaymentSessionId(sessionId).orElseThrow(() ->
+                    bookingRepository.findAndLockByPaymentSessionId(sessionId).orElseThrow(() ->
                             new ResourceNotFoundException("Booking not found for session ID: "+sessionId));
 
+            // a webhook delivered after the expiry sweep, the session was paid just before it expired
+            if(booking.getBookingStatus()==BookingStatus.EXPIRED){
+                log.error("Checkout completed for Booking ID: {} after its rooms were released, the payment needs a refund",
+                        booking.getId());
+                return;
+            }
+
+            // Stripe retries a webhook it did not see acknowledged, only the first delivery confirms the booking
+            if(booking.getBookingStatus()!=BookingStatus.PAYMENT_PENDING){
+                log.info("Ignoring checkout completion for Booking ID: {} in status {}", booking.getId(),
+                        booking.getBookingStatus());
+                return;
+            }
+
             booking.setBookingStatus(BookingStatus.CONFIRMED);
             bookingRepository.save(booking);
 
-            inventoryRepository.findAndLockReservedInventory(booking.getRoom().getId(), booking.getCheckInDate(),
-                    booking.getCheckOutDate(), booking.getRoomsCount());
+            if(reservationMode==ReservationMode.PESSIMISTIC){
+                inventoryRepository.findAndLockReservedInventory(booking.getRoom().getId(), booking.getCheckInDate(),
+                        booking.getCheckOutDate(), booking.getRoomsCount());
+            }
 
-            inventoryRepository.confirmBooking(booking.getRoom().getId(), booking.getCheckInDate(),
+            int updatedCount=inventoryRepository.confirmBooking(booking.getRoom().getId(), booking.getCheckInDate(),
                     booking.getCheckOutDate(), booking.getRoomsCount());
+            if(updatedCount!=getDaysCount(booking)){
+                throw new IllegalStateException("Reserved inventory not found for Booking ID: "+booking.getId());
+            }
+            inventoryLedger.evictAfterCommit(booking.getRoom().getId());
+            repricingTracker.markDirtyAfterCommit(booking.getHotel().getId(), booking.getCheckInDate(),
+                    booking.getCheckOutDate());
+            hotelRevenueRollupService.recordConfirmed(booking);
 
             log.info("Successfully confirmed the booking for Booking ID: {}", booking.getId());
         } else {
@@ -184,7 +235,7 @@ public class BookingServiceImpl implements BookingService{
     @Override
     @org.springframework.transaction.annotation.Transactional
     public void cancelBooking(Long bookingId) {
-        Booking booking = bookingRepository.findById(bookingId).orElseThrow(
+        Booking booking = bookingRepository.findAndLockById(bookingId).orElseThrow(
                 () -> new ResourceNotFoundException("Booking not found with id: "+bookingId)
         );
         User user = getCurrentUser();
@@ -199,11 +250,22 @@ public class BookingServiceImpl implements BookingService{
         booking.setBookingStatus(BookingStatus.CANCELLED);
         bookingRepository.save(booking);
 
-        inventoryRepository.findAndLockReservedInventory(booking.getRoom().getId(), booking.getCheckInDate(),
-                booking.getCheckOutDate(), booking.getRoomsCount());
+        if(reservationMode==ReservationMode.PESSIMISTIC){
+            inventoryRepository.findAndLockReservedInventory(booking.getRoom().getId(), booking.getCheckInDate(),
+                    booking.getCheckOutDate(), booking.getRoomsCount());
+        }
 
-        inventoryRepository.cancelBooking(booking.getRoom().getId(), booking.getCheckInDate(),
+        int updatedCount=inventoryRepository.cancelBooking(booking.getRoom().getId(), booking.getCheckInDate(),
                 booking.getCheckOutDate(), booking.getRoomsCount());
+        if(reservationMode==ReservationMode.OPTIMISTIC && updatedCount!=getDaysCount(booking)){
+            throw new IllegalStateException("Booked inventory not found for Booking ID: "+booking.getId());
+        }
+        inventoryLedger.evictAfterCommit(booking.getRoom().getId());
+        hotelAvailabilityIndex.refreshAfterCommit(booking.getHotel(), booking.getRoom().getId(),
+                booking.getCheckInDate(), booking.getCheckOutDate());
+        repricingTracker.markDirtyAfterCommit(booking.getHotel().getId(), booking.getCheckInDate(),
+                booking.getCheckOutDate());
+        hotelRevenueRollupService.recordCancelled(booking);
 
         // handle the refund
 
@@ -249,6 +311,19 @@ public class BookingServiceImpl implements BookingService{
                         .map(booking,BookingDto.class)).collect(Collectors.toList());
     }
 
+    @Override
+    public CursorPageDto<BookingDto> getBookingsByHotelId(Long hotelId, String cursor, int size) {
+        Hotel hotel=hotelRepository.findById(hotelId).orElseThrow(()->new ResourceNotFoundException("Hotel not found with hotel ID: "+hotelId));
+
+        User user=getCurrentUser();
+        log.info("Getting bookings page for hotel with ID: {}",hotelId);
+        if(!user.getId().equals(hotel.getOwner().getId()))
+            throw new AccessDeniedException("You are not owner of hotel with ID: "+hotelId);
+
+        return getBookingsPage(cursor,size,(lastCreatedAt,lastId,pageable)->
+                bookingRepository.findIdsByHotelIdBefore(hotelId,lastCreatedAt,lastId,pageable));
+    }
+
     @Override
     public HotelReportDto getHotelReport(Long hotelId, LocalDate startDate, LocalDate endDate) {
         Hotel hotel=hotelRepository.findById(hotelId).orElseThrow(()->new ResourceNotFoundException("Hotel not found with hotel ID: "+hotelId));
@@ -258,6 +333,10 @@ public class BookingServiceImpl implements BookingService{
         if(!user.getId().equals(hotel.getOwner().getId()))
             throw new AccessDeniedException("You are not owner of hotel with ID: "+hotelId);
 
+        if(hotelRevenueRollupService.isEnabled()){
+            return hotelRevenueRollupService.getReport(hotelId,startDate,endDate);
+        }
+
         LocalDateTime startDateTime=startDate.atStartOfDay();
         LocalDateTime endDateTime=endDate.atTime(LocalTime.MAX);
 
@@ -291,8 +370,123 @@ public class BookingServiceImpl implements BookingService{
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public CursorPageDto<BookingDto> getMyBookings(String cursor, int size) {
+        log.info("Getting My bookings page");
+        User user=getCurrentUser();
+
+        return getBookingsPage(cursor,size,(lastCreatedAt,lastId,pageable)->
+                bookingRepository.findIdsByUserIdBefore(user.getId(),lastCreatedAt,lastId,pageable));
+    }
+
+    // Two statements per page whatever the page holds: the keyset page of ids, then those bookings with their guests
+    private CursorPageDto<BookingDto> getBookingsPage(String cursor, int size, BookingIdPageQuery idPageQuery){
+        int pageSize=Math.clamp(size,1,MAX_BOOKING_PAGE_SIZE);
+        LocalDateTime lastCreatedAt=FIRST_PAGE_CREATED_AT;
+        Long lastId=Long.MAX_VALUE;
+        if(cursor!=null){
+            String[] values=CursorUtils.decode(cursor,2);
+            try{
+                lastCreatedAt=LocalDateTime.parse(values[0]);
+                lastId=Long.valueOf(values[1]);
+            }catch (DateTimeParseException | NumberFormatException ex){
+                throw new BadRequestException("Invalid cursor: "+cursor);
+            }
+        }
+
+        // one extra id tells whether there is a next page without a count query
+        List<Long> bookingIds=idPageQuery.find(lastCreatedAt,lastId,PageRequest.of(0,pageSize+1));
+        boolean hasNext=bookingIds.size()>pageSize;
+        if(hasNext){
+            bookingIds=bookingIds.subList(0,pageSize);
+        }
+        if(bookingIds.isEmpty()){
+            return new CursorPageDto<>(List.of(),null);
+        }
+
+        List<Booking> bookings=bookingRepository.findWithGuestsByIdIn(bookingIds);
+        List<BookingDto> content=bookings
+                .stream()
+                .map(booking -> modelMapper.map(booking,BookingDto.class))
+                .collect(Collectors.toList());
+        if(!hasNext){
+            return new CursorPageDto<>(content,null);
+        }
+        Booking last=bookings.getLast();
+        return new CursorPageDto<>(content,CursorUtils.encode(last.getCreatedAt(),last.getId()));
+    }
+
+    @FunctionalInterface
+    private interface BookingIdPageQuery {
+        List<Long> find(LocalDateTime lastCreatedAt, Long lastId, Pageable pageable);
+    }
+
+    private List<Inventory> reserveInventory(Room room, BookingRequest bookingRequest){
+        List<Inventory> inventoryList;
+        if(inventoryLedger.isEnabled()){
+            inventoryList=reserveThroughLedger(room, bookingRequest);
+        }else if(reservationMode==ReservationMode.OPTIMISTIC){
+            inventoryList=reserveWithConditionalUpdate(room, bookingRequest);
+        }else{
+            inventoryList=reserveWithLock(room, bookingRequest);
+        }
+
+        hotelAvailabilityIndex.refreshAfterCommit(room.getHotel(),room.getId(),
+                bookingRequest.getCheckInDate(),bookingRequest.getCheckOutDate());
+        return inventoryList;
+    }
+
+    private List<Inventory> reserveWithLock(Room room, BookingRequest bookingRequest){
+        List<Inventory>inventoryList=inventoryRepository.findAndLockAvailableInventory(room.getId(),
+                bookingRequest.getCheckInDate(),bookingRequest.getCheckOutDate(),bookingRequest.getRoomsCount());
+
+        long daysCount= ChronoUnit.DAYS.between(bookingRequest.getCheckInDate(),bookingRequest.getCheckOutDate())+1;
+        if(inventoryList.size()!=daysCount){
+            throw new IllegalStateException("Room is not available anymore");
+        }
+
+//        Reserve the room/ update the booked count of inventories
+
+        inventoryRepository.initBooking(room.getId(), bookingRequest.getCheckInDate(),
+                bookingRequest.getCheckOutDate(), bookingRequest.getRoomsCount());
+
+        return inventoryList;
+    }
+
+    private List<Inventory> reserveThroughLedger(Room room, BookingRequest bookingRequest){
+        if(!inventoryLedger.tryReserve(room.getId(),bookingRequest.getCheckInDate(),
+                bookingRequest.getCheckOutDate(),bookingRequest.getRoomsCount())){
+            throw new IllegalStateException("Room is not available anymore");
+        }
+
+        // the ledger already admitted the booking, so the conditional update runs without the locking select
+        return reserveWithConditionalUpdate(room, bookingRequest);
+    }
+
+    private List<Inventory> reserveWithConditionalUpdate(Room room, BookingRequest bookingRequest){
+        long daysCount= ChronoUnit.DAYS.between(bookingRequest.getCheckInDate(),bookingRequest.getCheckOutDate())+1;
+        int updatedCount=inventoryRepository.initBooking(room.getId(), bookingRequest.getCheckInDate(),
+                bookingRequest.getCheckOutDate(), bookingRequest.getRoomsCount());
+
+        // a shortfall means some nights were sold out, throwing rolls back the nights that were reserved
+        if(updatedCount!=daysCount){
+            if(inventoryLedger.isEnabled()){
+                log.warn("Inventory ledger for room with ID: {} is out of sync with the database",room.getId());
+                inventoryLedger.evict(room.getId());
+            }
+            throw new IllegalStateException("Room is not available anymore");
+        }
+
+        return inventoryRepository.findByRoomIdAndDateBetween(room.getId(),
+                bookingRequest.getCheckInDate(),bookingRequest.getCheckOutDate());
+    }
+
+    private long getDaysCount(Booking booking){
+        return ChronoUnit.DAYS.between(booking.getCheckInDate(),booking.getCheckOutDate())+1;
+    }
+
     public Boolean hasBookingExpired(Booking booking){
-        return booking.getCreatedAt().plusMinutes(10).isBefore(LocalDateTime.now());
+        return booking.getCreatedAt().plusMinutes(BOOKING_HOLD_MINUTES).isBefore(LocalDateTime.now());
     }
 
 }
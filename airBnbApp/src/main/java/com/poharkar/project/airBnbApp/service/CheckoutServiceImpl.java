@@ -10,23 +10,29 @@ import com.stripe.param.CustomerCreateParams;
 import com.stripe.param.checkout.SessionCreateParams;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static com.poharkar.project.airBnbApp.service.BookingServiceImpl.PAYMENT_SESSION_MINUTES;
+import static com.poharkar.project.airBnbApp.util.AppUtils.getCurrentUser;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CheckoutServiceImpl implements CheckoutService{
     private final BookingRepository bookingRepository;
+    private final UserService userService;
 
     @Override
     public String getCheckoutSession(Booking booking, String successUrl, String failureUrl) {
 
         log.info("Creating a session for booking with Id {}",booking.getId());
 
-        User user= (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        // the principal only holds the token claims, the customer needs the name as well
+        User user=userService.getUserById(getCurrentUser().getId());
 
         try {
 
@@ -43,6 +49,8 @@ public class CheckoutServiceImpl implements CheckoutService{
                     .setCustomer(customer.getId())
                     .setSuccessUrl(successUrl)
                     .setCancelUrl(failureUrl)
+                    // an abandoned checkout can not be paid after the expiry sweep gave its rooms back
+                    .setExpiresAt(Instant.now().plus(PAYMENT_SESSION_MINUTES,ChronoUnit.MINUTES).getEpochSecond())
                     .addLineItem(
                             SessionCreateParams.LineItem.builder()
                                     .setQuantity(1L)
@@ -0,0 +1,302 @@
+package com.poharkar.project.airBnbApp.service;
+
+import com.poharkar.project.airBnbApp.dto.InventoryAvailabilityDto;
+import com.poharkar.project.airBnbApp.entity.Hotel;
+import com.poharkar.project.airBnbApp.repository.InventoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.poharkar.project.airBnbApp.util.AppUtils.normalizeCity;
+
+// In-memory availability index for hotel search (search.availability-index.enabled).
+// Per city every room gets an ordinal, and per date there is one bitmap per "at least N free rooms" bucket,
+// so a search for [start, end] with N rooms is an AND of one bitmap per night.
+// Rooms are indexed instead of hotels, so a hotel only matches when one of its rooms is free for every night.
+// The index only sees the bookings of its own process, so it is off by default and for single instance deployments only.
+@Component
+@Slf4j
+public class HotelAvailabilityIndex {
+
+    private static final int REFRESH_LOCK_STRIPES=64;
+
+    private final InventoryRepository inventoryRepository;
+    private final HotelSearchCache hotelSearchCache;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ReentrantLock[] refreshLocks=new ReentrantLock[REFRESH_LOCK_STRIPES];
+
+    @Value("${search.availability-index.enabled:false}")
+    private boolean enabled;
+
+    @Value("${search.availability-index.max-rooms:8}")
+    private int maxRooms;
+
+    // keyed by normalizeCity, like the search cache and the search queries
+    private final Map<String, CityIndex> cities=new ConcurrentHashMap<>();
+    // changes that arrive while a city is rebuilt, replayed on the new index once it is in place
+    private final Map<String, Queue<RoomChange>> rebuildingCities=new ConcurrentHashMap<>();
+
+    public HotelAvailabilityIndex(InventoryRepository inventoryRepository,
+                                  HotelSearchCache hotelSearchCache,
+                                  PlatformTransactionManager transactionManager) {
+        this.inventoryRepository = inventoryRepository;
+        this.hotelSearchCache = hotelSearchCache;
+        // after commit the finished transaction is still bound, so the re-read needs its own
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        for(int i=0;i<REFRESH_LOCK_STRIPES;i++){
+            refreshLocks[i]=new ReentrantLock();
+        }
+    }
+
+    // Returns the hotels with a room free for every night, or null when the index can not answer the search
+    public Set<Long> findAvailableHotels(String city, LocalDate startDate, LocalDate endDate, int roomsCount){
+        if(!enabled || roomsCount<1 || roomsCount>maxRooms){
+            return null;
+        }
+        CityIndex cityIndex=cities.get(normalizeCity(city));
+        if(cityIndex==null){
+            return null;
+        }
+        return cityIndex.findAvailableHotels(startDate,endDate,roomsCount);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${search.availability-index.rebuild-cron:0 45 0 * * *}")
+    public void rebuild(){
+        if(!enabled) return;
+
+        long startTime=System.currentTimeMillis();
+        LocalDate today=LocalDate.now();
+        List<String> cityNames=inventoryRepository.findCitiesWithInventoryFrom(today);
+        for(String city: cityNames){
+            rebuildCity(city,today);
+        }
+        cities.keySet().retainAll(cityNames);
+        log.info("Rebuilt availability index for {} cities in {} ms",cityNames.size(),System.currentTimeMillis()-startTime);
+    }
+
+    public void rebuildCity(String city, LocalDate startDate){
+        String cityName=normalizeCity(city);
+        Queue<RoomChange> changes=new ConcurrentLinkedQueue<>();
+        rebuildingCities.put(cityName,changes);
+        try{
+            CityIndex cityIndex=new CityIndex(maxRooms);
+            for(InventoryAvailabilityDto availability: inventoryRepository.findAvailabilityByCity(cityName,startDate)){
+                cityIndex.update(availability);
+            }
+            cities.put(cityName,cityIndex);
+        }finally {
+            rebuildingCities.remove(cityName,changes);
+        }
+
+        // the rows read above may predate these changes, which only reached the old index
+        RoomChange change;
+        while((change=changes.poll())!=null){
+            if(change.removed()){
+                removeRoom(cityName,change.roomId());
+            }else{
+                refresh(cityName,change.roomId(),change.startDate(),change.endDate());
+            }
+        }
+    }
+
+    // Whether refreshAfterCommit and removeRoomAfterCommit use the city at all, for the index or the search cache eviction.
+    // Callers that would have to load the hotel for its city check this first.
+    public boolean needsCity(){
+        return enabled || hotelSearchCache.isEnabled();
+    }
+
+    // Like refreshAfterCommit(String, ...), the hotel is only loaded for its city when the city is used
+    public void refreshAfterCommit(Hotel hotel, Long roomId, LocalDate startDate, LocalDate endDate){
+        if(needsCity()){
+            refreshAfterCommit(hotel.getCity(),roomId,startDate,endDate);
+        }
+    }
+
+    // Re-reads the given nights of a room once the current transaction commits and applies them
+    public void refreshAfterCommit(String city, Long roomId, LocalDate startDate, LocalDate endDate){
+        hotelSearchCache.evictCityAfterCommit(city);
+        if(!enabled) return;
+
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh(city,roomId,startDate,endDate);
+                }
+            });
+        }else{
+            refresh(city,roomId,startDate,endDate);
+        }
+    }
+
+    public void removeRoomAfterCommit(Hotel hotel, Long roomId){
+        if(needsCity()){
+            removeRoomAfterCommit(hotel.getCity(),roomId);
+        }
+    }
+
+    public void removeRoomAfterCommit(String city, Long roomId){
+        hotelSearchCache.evictCityAfterCommit(city);
+        if(!enabled) return;
+
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    removeRoom(city,roomId);
+                }
+            });
+        }else{
+            removeRoom(city,roomId);
+        }
+    }
+
+    // Read and apply under the room's lock, so a refresh that read older rows can not be applied after a newer one
+    private void refresh(String city, Long roomId, LocalDate startDate, LocalDate endDate){
+        Queue<RoomChange> changes=rebuildingCities.get(normalizeCity(city));
+        if(changes!=null){
+            changes.add(new RoomChange(roomId,startDate,endDate,false));
+        }
+
+        ReentrantLock lock=refreshLocks[(Long.hashCode(roomId) & Integer.MAX_VALUE) % REFRESH_LOCK_STRIPES];
+        lock.lock();
+        try{
+            List<InventoryAvailabilityDto> availabilities=readOnlyTransactionTemplate.execute(status->
+                    inventoryRepository.findAvailabilityByRoom(roomId,startDate,endDate));
+            apply(city,availabilities==null? List.of() : availabilities);
+        }finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(String city, List<InventoryAvailabilityDto> availabilities){
+        if(availabilities.isEmpty()) return;
+
+        CityIndex cityIndex=cities.computeIfAbsent(normalizeCity(city),name->new CityIndex(maxRooms));
+        for(InventoryAvailabilityDto availability: availabilities){
+            cityIndex.update(availability);
+        }
+    }
+
+    private void removeRoom(String city, Long roomId){
+        Queue<RoomChange> changes=rebuildingCities.get(normalizeCity(city));
+        if(changes!=null){
+            changes.add(new RoomChange(roomId,null,null,true));
+        }
+
+        CityIndex cityIndex=cities.get(normalizeCity(city));
+        if(cityIndex!=null){
+            cityIndex.removeRoom(roomId);
+        }
+    }
+
+    private record RoomChange(Long roomId, LocalDate startDate, LocalDate endDate, boolean removed) {
+    }
+
+    private static class CityIndex {
+        private final int maxRooms;
+        private final ReadWriteLock lock=new ReentrantReadWriteLock();
+        private final Map<Long, Integer> roomOrdinals=new HashMap<>();
+        private long[] roomHotelIds=new long[64];
+        private final Map<Long, BitSet[]> days=new HashMap<>();
+
+        CityIndex(int maxRooms){
+            this.maxRooms=maxRooms;
+        }
+
+        Set<Long> findAvailableHotels(LocalDate startDate, LocalDate endDate, int roomsCount){
+            lock.readLock().lock();
+            try{
+                BitSet rooms=null;
+                for(long day=startDate.toEpochDay();day<=endDate.toEpochDay();day++){
+                    BitSet[] buckets=days.get(day);
+                    if(buckets==null){
+                        return Set.of();
+                    }
+                    if(rooms==null){
+                        rooms=(BitSet) buckets[roomsCount-1].clone();
+                    }else{
+                        rooms.and(buckets[roomsCount-1]);
+                    }
+                    if(rooms.isEmpty()){
+                        return Set.of();
+                    }
+                }
+                if(rooms==null){
+                    return Set.of();
+                }
+
+                Set<Long> hotelIds=new HashSet<>();
+                for(int ordinal=rooms.nextSetBit(0);ordinal>=0;ordinal=rooms.nextSetBit(ordinal+1)){
+                    hotelIds.add(roomHotelIds[ordinal]);
+                }
+                return hotelIds;
+            }finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void update(InventoryAvailabilityDto availability){
+            lock.writeLock().lock();
+            try{
+                int ordinal=roomOrdinals.computeIfAbsent(availability.getRoomId(),roomId->{
+                    int next=roomOrdinals.size();
+                    if(next==roomHotelIds.length){
+                        roomHotelIds=Arrays.copyOf(roomHotelIds,next*2);
+                    }
+                    roomHotelIds[next]=availability.getHotelId();
+                    return next;
+                });
+
+                BitSet[] buckets=days.computeIfAbsent(availability.getDate().toEpochDay(),day->{
+                    BitSet[] newBuckets=new BitSet[maxRooms];
+                    for(int i=0;i<maxRooms;i++){
+                        newBuckets[i]=new BitSet();
+                    }
+                    return newBuckets;
+                });
+
+                int freeCount=availability.getClosed()? 0 : availability.getFreeCount();
+                for(int bucket=0;bucket<maxRooms;bucket++){
+                    buckets[bucket].set(ordinal,freeCount>bucket);
+                }
+            }finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void removeRoom(Long roomId){
+            lock.writeLock().lock();
+            try{
+                Integer ordinal=roomOrdinals.get(roomId);
+                if(ordinal==null) return;
+                for(BitSet[] buckets: days.values()){
+                    for(BitSet bucket: buckets){
+                        bucket.clear(ordinal);
+                    }
+                }
+            }finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
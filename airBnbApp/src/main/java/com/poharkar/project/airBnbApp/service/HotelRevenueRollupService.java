@@ -0,0 +1,90 @@
+package com.poharkar.project.airBnbApp.service;
+
+import com.poharkar.project.airBnbApp.dto.HotelReportDto;
+import com.poharkar.project.airBnbApp.entity.Booking;
+import com.poharkar.project.airBnbApp.repository.HotelDailyRevenueRepository;
+import com.poharkar.project.airBnbApp.repository.HotelRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+
+// Keeps HotelDailyRevenue in step with confirmed and cancelled bookings, keyed by the booking creation date
+// like the hotel report. Reports read the rollup once report.rollup.enabled is set, which should only be
+// done after the backfill (report.rollup.backfill-on-startup) has run once over the existing bookings.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HotelRevenueRollupService {
+
+    private final HotelDailyRevenueRepository hotelDailyRevenueRepository;
+    private final HotelRepository hotelRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${report.rollup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${report.rollup.backfill-on-startup:false}")
+    private boolean backfillOnStartup;
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    public void recordConfirmed(Booking booking){
+        hotelDailyRevenueRepository.lockHotelRevenueShared(booking.getHotel().getId());
+        hotelDailyRevenueRepository.addRevenue(booking.getHotel().getId(),booking.getCreatedAt().toLocalDate(),
+                1,booking.getAmount(),0);
+    }
+
+    public void recordCancelled(Booking booking){
+        hotelDailyRevenueRepository.lockHotelRevenueShared(booking.getHotel().getId());
+        hotelDailyRevenueRepository.addRevenue(booking.getHotel().getId(),booking.getCreatedAt().toLocalDate(),
+                -1,booking.getAmount().negate(),1);
+    }
+
+    public HotelReportDto getReport(Long hotelId, LocalDate startDate, LocalDate endDate){
+        HotelDailyRevenueRepository.RevenueTotals totals=hotelDailyRevenueRepository.sumRevenue(hotelId,startDate,endDate);
+
+        Long totalConfirmedBooking=totals.getConfirmedCount();
+        BigDecimal totalRevenueOfConfirmedBookings=totals.getRevenue();
+        BigDecimal avgRevenue=totalConfirmedBooking==0? BigDecimal.ZERO : totalRevenueOfConfirmedBookings
+                .divide(BigDecimal.valueOf(totalConfirmedBooking), RoundingMode.HALF_UP);
+        return new HotelReportDto(totalConfirmedBooking,totalRevenueOfConfirmedBookings,avgRevenue);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup(){
+        if(backfillOnStartup){
+            backfill();
+        }
+    }
+
+    // Recomputes the rollup of every hotel from its bookings, one transaction per hotel
+    public void backfill(){
+        long startTime=System.currentTimeMillis();
+        List<Long> hotelIds=hotelRepository.findAllIds();
+        log.info("Backfilling daily revenue of {} hotels",hotelIds.size());
+
+        int rowCount=0;
+        for(Long hotelId: hotelIds){
+            Integer hotelRowCount=transactionTemplate.execute(status->{
+                hotelDailyRevenueRepository.lockHotelRevenue(hotelId);
+                // a day whose bookings are all gone has no group below, so its old row would be kept
+                hotelDailyRevenueRepository.deleteHotelRevenue(hotelId);
+                return hotelDailyRevenueRepository.rebuildHotelRevenue(hotelId);
+            });
+            rowCount+=hotelRowCount==null? 0 : hotelRowCount;
+        }
+        log.info("Backfilled {} daily revenue rows of {} hotels in {} ms",rowCount,hotelIds.size(),
+                System.currentTimeMillis()-startTime);
+    }
+}
@@ -0,0 +1,91 @@
+package com.poharkar.project.airBnbApp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.poharkar.project.airBnbApp.dto.HotelPriceDto;
+import com.poharkar.project.airBnbApp.dto.HotelSearchRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static com.poharkar.project.airBnbApp.util.AppUtils.normalizeCity;
+
+// Bounded cache of hotel search result pages (search.cache.enabled).
+// Every key carries the version of its city, bumping the version after a price or inventory change
+// makes the old pages of that city unreachable and they age out through the size and TTL limits.
+@Component
+@Slf4j
+public class HotelSearchCache {
+
+    private final Cache<SearchKey, Page<HotelPriceDto>> cache;
+    private final Map<String, Long> cityVersions=new ConcurrentHashMap<>();
+    private final boolean enabled;
+
+    public HotelSearchCache(@Value("${search.cache.enabled:true}") boolean enabled,
+                            @Value("${search.cache.max-size:10000}") long maxSize,
+                            @Value("${search.cache.ttl-seconds:300}") long ttlSeconds,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry,cache,"hotelSearch");
+    }
+
+    public Page<HotelPriceDto> get(HotelSearchRequest hotelSearchRequest, Supplier<Page<HotelPriceDto>> search){
+        if(!enabled || hotelSearchRequest.getCity()==null){
+            return search.get();
+        }
+
+        // the version is read before searching, so a change committed during the search is not hidden
+        String city=normalizeCity(hotelSearchRequest.getCity());
+        SearchKey key=new SearchKey(city,
+                cityVersions.getOrDefault(city,0L),
+                hotelSearchRequest.getStartDate(),
+                hotelSearchRequest.getEndDate(),
+                hotelSearchRequest.getRoomsCount()==null? 1 : hotelSearchRequest.getRoomsCount(),
+                hotelSearchRequest.getPage(),
+                hotelSearchRequest.getSize());
+        return cache.get(key,searchKey->search.get());
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    public void evictCityAfterCommit(String city){
+        if(!enabled || city==null) return;
+
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictCity(city);
+                }
+            });
+        }else{
+            evictCity(city);
+        }
+    }
+
+    public void evictCity(String city){
+        cityVersions.merge(normalizeCity(city),1L,Long::sum);
+    }
+
+    private record SearchKey(String city, long version, LocalDate startDate, LocalDate endDate,
+                             int roomsCount, Integer page, Integer size) {
+    }
+}
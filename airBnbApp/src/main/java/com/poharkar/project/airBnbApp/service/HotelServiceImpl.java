@@ -152,10 +152,8 @@ public class HotelServiceImpl implements HotelService{
 
         hotel.setActive(true);
 
-        //assuming only do it once
-        for(Room room: hotel.getRooms()){
-            inventoryService.initializeRoomForAYear(room);
-        }
+        //assuming only do it once, re-running only fills in missing dates
+        inventoryService.initializeHotelForAYear(hotel);
     }
 
 
@@ -0,0 +1,95 @@
+package com.poharkar.project.airBnbApp.service;
+
+import com.poharkar.project.airBnbApp.repository.HotelRepository;
+import com.poharkar.project.airBnbApp.repository.InventoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryHorizonService {
+    // Schedular to keep a full year of inventory ahead of today for every room of the active hotels.
+    // Hotels are split into id ranges that run in parallel, each range commits on its own and
+    // only inserts the dates after a room's last inventory row, so a crashed run is resumed by running it again.
+    // The new dates are inserted at the base price and marked in the RepricingTracker once their range commits,
+    // so the next hourly repricing run prices them and writes their HotelMinPrice rows for search.
+
+    private final HotelRepository hotelRepository;
+    private final InventoryRepository inventoryRepository;
+    private final InventoryLedger inventoryLedger;
+    private final RepricingTracker repricingTracker;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${inventory.horizon.hotel-chunk-size:500}")
+    private long hotelChunkSize;
+
+    @Value("${inventory.horizon.parallelism:4}")
+    private int parallelism;
+
+    @Scheduled(cron = "${inventory.horizon.cron:0 30 0 * * *}")
+    public void extendInventoryHorizon(){
+        Long minHotelId=hotelRepository.findMinActiveHotelId();
+        Long maxHotelId=hotelRepository.findMaxActiveHotelId();
+        if(minHotelId==null || maxHotelId==null){
+            return;
+        }
+
+        LocalDate startDate=LocalDate.now();
+        LocalDate endDate=startDate.plusYears(1);
+        long startTime=System.currentTimeMillis();
+        log.info("Extending inventory horizon to {} for hotels {} - {}",endDate,minHotelId,maxHotelId);
+
+        int rowCount=0;
+        try(ExecutorService executor=Executors.newFixedThreadPool(parallelism)){
+            List<Future<Integer>> chunks=new ArrayList<>();
+            for(long fromHotelId=minHotelId;fromHotelId<=maxHotelId;fromHotelId+=hotelChunkSize){
+                long from=fromHotelId;
+                long to=Math.min(maxHotelId,fromHotelId+hotelChunkSize-1);
+                chunks.add(executor.submit(()->extendChunk(from,to,startDate,endDate)));
+            }
+
+            for(Future<Integer> chunk: chunks){
+                try{
+                    rowCount+=chunk.get();
+                }catch (ExecutionException ex){
+                    log.error("Failed to extend inventory horizon for a hotel range",ex.getCause());
+                }
+            }
+        }catch (InterruptedException ex){
+            Thread.currentThread().interrupt();
+        }
+
+        // cached ledger calendars end at the old horizon
+        inventoryLedger.evictAll();
+        log.info("Extended inventory horizon with {} rows in {} ms",rowCount,System.currentTimeMillis()-startTime);
+    }
+
+    private int extendChunk(long fromHotelId, long toHotelId, LocalDate startDate, LocalDate endDate){
+        List<InventoryRepository.HorizonStart> horizonStarts=new ArrayList<>();
+        Integer rowCount=transactionTemplate.execute(status->{
+            horizonStarts.addAll(inventoryRepository.findInventoryHorizonStarts(fromHotelId,toHotelId,startDate));
+            return inventoryRepository.extendInventoryHorizon(fromHotelId,toHotelId,startDate,endDate);
+        });
+
+        for(InventoryRepository.HorizonStart horizonStart: horizonStarts){
+            if(!horizonStart.getFirstNewDate().isAfter(endDate)){
+                repricingTracker.markDirty(horizonStart.getHotelId(),horizonStart.getFirstNewDate(),endDate);
+            }
+        }
+        log.info("Extended inventory horizon for hotels {} - {} with {} rows",fromHotelId,toHotelId,rowCount);
+        return rowCount==null? 0 : rowCount;
+    }
+}
@@ -0,0 +1,195 @@
+package com.poharkar.project.airBnbApp.service;
+
+import com.poharkar.project.airBnbApp.dto.InventoryAvailabilityDto;
+import com.poharkar.project.airBnbApp.repository.InventoryRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// In-process admission control for room reservations (inventory.ledger.enabled).
+// Every room calendar is loaded once from the Inventory table and guarded by one of a fixed set of
+// striped locks, so bookings of a sold out night are refused in memory without a round trip to Postgres.
+// A calendar is read as a projection, outside the stripe lock and the map, so a slow load holds up no other room.
+// The conditional UPDATE in InventoryRepository.initBooking is still executed as the source of truth,
+// so admitted bookings queue on its row locks as before (see InventoryReservationBenchmark), the ledger
+// is only an admission filter and is meant for a single application instance.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryLedger {
+
+    private final InventoryRepository inventoryRepository;
+
+    @Value("${inventory.ledger.enabled:false}")
+    private boolean enabled;
+
+    @Value("${inventory.ledger.lock-stripes:64}")
+    private int lockStripes;
+
+    private final Map<Long, RoomCalendar> calendars=new ConcurrentHashMap<>();
+    private final AtomicLong evictions=new AtomicLong();
+    private ReentrantLock[] locks;
+
+    @PostConstruct
+    void initLocks(){
+        locks=new ReentrantLock[lockStripes];
+        for(int i=0;i<lockStripes;i++){
+            locks[i]=new ReentrantLock();
+        }
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    public boolean tryReserve(Long roomId, LocalDate startDate, LocalDate endDate, int roomsCount){
+        RoomCalendar calendar=calendarFor(roomId);
+        ReentrantLock lock=lockFor(roomId);
+        lock.lock();
+        try{
+            if(!calendar.hasCapacity(startDate,endDate,roomsCount)){
+                return false;
+            }
+            calendar.adjustReserved(startDate,endDate,roomsCount);
+        }finally {
+            lock.unlock();
+        }
+
+        // give the rooms back if the booking transaction does not commit
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if(status!=STATUS_COMMITTED){
+                        adjustReserved(roomId,calendar,startDate,endDate,-roomsCount);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    // Drops the cached calendar once the surrounding transaction commits, the next booking reloads it.
+    public void evictAfterCommit(Long roomId){
+        if(!enabled) return;
+
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(roomId);
+                }
+            });
+        }else{
+            evict(roomId);
+        }
+    }
+
+    public void evict(Long roomId){
+        evictions.incrementAndGet();
+        calendars.remove(roomId);
+    }
+
+    public void evictAll(){
+        evictions.incrementAndGet();
+        calendars.clear();
+    }
+
+    private RoomCalendar calendarFor(Long roomId){
+        RoomCalendar calendar=calendars.get(roomId);
+        if(calendar!=null){
+            return calendar;
+        }
+
+        long evictionCount=evictions.get();
+        RoomCalendar loaded=loadCalendar(roomId);
+        RoomCalendar existing=calendars.putIfAbsent(roomId,loaded);
+        if(existing!=null){
+            return existing;
+        }
+        // an eviction since the load started may have been for this room, its rows could predate that commit.
+        // Every later eviction counts up before it removes, so it removes the calendar put above by itself.
+        if(evictions.get()!=evictionCount){
+            calendars.remove(roomId,loaded);
+        }
+        return loaded;
+    }
+
+    private void adjustReserved(Long roomId, RoomCalendar calendar, LocalDate startDate, LocalDate endDate, int delta){
+        ReentrantLock lock=lockFor(roomId);
+        lock.lock();
+        try{
+            calendar.adjustReserved(startDate,endDate,delta);
+        }finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(Long roomId){
+        return locks[(Long.hashCode(roomId) & Integer.MAX_VALUE) % locks.length];
+    }
+
+    private RoomCalendar loadCalendar(Long roomId){
+        log.info("Loading inventory ledger for room with ID: {}",roomId);
+        return new RoomCalendar(inventoryRepository.findAvailabilityByRoomOrderByDate(roomId));
+    }
+
+    private static class RoomCalendar {
+        private final long firstDay;
+        private final int[] freeCount;
+        private final boolean[] closed;
+        private final boolean[] present;
+
+        RoomCalendar(List<InventoryAvailabilityDto> availabilities){
+            if(availabilities.isEmpty()){
+                firstDay=0;
+            }else{
+                firstDay=availabilities.getFirst().getDate().toEpochDay();
+            }
+            int days=availabilities.isEmpty()? 0 : (int) (availabilities.getLast().getDate().toEpochDay()-firstDay+1);
+            freeCount=new int[days];
+            closed=new boolean[days];
+            present=new boolean[days];
+
+            for(InventoryAvailabilityDto availability: availabilities){
+                int index=(int) (availability.getDate().toEpochDay()-firstDay);
+                freeCount[index]=availability.getFreeCount();
+                closed[index]=availability.getClosed();
+                present[index]=true;
+            }
+        }
+
+        boolean hasCapacity(LocalDate startDate, LocalDate endDate, int roomsCount){
+            long start=startDate.toEpochDay()-firstDay;
+            long end=endDate.toEpochDay()-firstDay;
+            if(start<0 || end>=present.length || start>end){
+                return false;
+            }
+            for(int i=(int) start;i<=end;i++){
+                if(!present[i] || closed[i] || freeCount[i]<roomsCount){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void adjustReserved(LocalDate startDate, LocalDate endDate, int delta){
+            int start=(int) Math.max(0,startDate.toEpochDay()-firstDay);
+            int end=(int) Math.min(present.length-1,endDate.toEpochDay()-firstDay);
+            for(int i=start;i<=end;i++){
+                freeCount[i]-=delta;
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.poharkar.project.airBnbApp.service;
 
 import com.poharkar.project.airBnbApp.dto.*;
+import com.poharkar.project.airBnbApp.entity.Hotel;
 import com.poharkar.project.airBnbApp.entity.Room;
 import org.jspecify.annotations.Nullable;
 import org.springframework.data.domain.Page;
@@ -10,10 +11,14 @@ import java.util.List;
 public interface InventoryService {
     void initializeRoomForAYear(Room room);
 
+    void initializeHotelForAYear(Hotel hotel);
+
     void deleteInventories(Room room);
 
     Page<HotelPriceDto> searchHotels(HotelSearchRequest hotelSearchRequest);
 
+    CursorPageDto<HotelPriceDto> searchHotelsByCursor(HotelSearchRequest hotelSearchRequest);
+
     List<InventoryDto> getAllInventoryByRoom(Long roomId);
 
     void updateInventory(Long roomId, UpdateInventoryRequestDto updateInventoryRequestDto);
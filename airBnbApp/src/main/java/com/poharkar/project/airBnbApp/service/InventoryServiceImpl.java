@@ -5,10 +5,12 @@ import com.poharkar.project.airBnbApp.entity.Hotel;
 import com.poharkar.project.airBnbApp.entity.Inventory;
 import com.poharkar.project.airBnbApp.entity.Room;
 import com.poharkar.project.airBnbApp.entity.User;
+import com.poharkar.project.airBnbApp.exception.BadRequestException;
 import com.poharkar.project.airBnbApp.exception.ResourceNotFoundException;
 import com.poharkar.project.airBnbApp.repository.HotelMinPriceRepository;
 import com.poharkar.project.airBnbApp.repository.InventoryRepository;
 import com.poharkar.project.airBnbApp.repository.RoomRepository;
+import com.poharkar.project.airBnbApp.util.CursorUtils;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,43 +22,70 @@ import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.poharkar.project.airBnbApp.util.AppUtils.getCurrentUser;
+import static com.poharkar.project.airBnbApp.util.AppUtils.normalizeCity;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class InventoryServiceImpl implements InventoryService{
+    // stays below the bind parameter limit of Postgres
+    private static final int MAX_INDEXED_HOTEL_IDS=30000;
+    private static final int MAX_SEARCH_PAGE_SIZE=100;
+
     private final RoomRepository roomRepository;
     private final InventoryRepository inventoryRepository;
     private final HotelMinPriceRepository hotelMinPriceRepository;
     private final ModelMapper modelMapper;
+    private final InventoryLedger inventoryLedger;
+    private final HotelAvailabilityIndex hotelAvailabilityIndex;
+    private final HotelSearchCache hotelSearchCache;
+    private final RepricingTracker repricingTracker;
 
 
     @Override
+    @Transactional
     public void initializeRoomForAYear(Room room) {
+        LocalDate today=LocalDate.now();
+        LocalDate endDate=today.plusYears(1);
+
+        long startTime=System.currentTimeMillis();
+        int rowCount=inventoryRepository.initializeRoomInventory(room.getId(),today,endDate);
+        logInitializedRows("room",room.getId(),rowCount,startTime);
+
+        inventoryLedger.evictAfterCommit(room.getId());
+        hotelAvailabilityIndex.refreshAfterCommit(room.getHotel(),room.getId(),today,endDate);
+        repricingTracker.markDirtyAfterCommit(room.getHotel().getId(),today,endDate);
+    }
 
+    @Override
+    @Transactional
+    public void initializeHotelForAYear(Hotel hotel) {
         LocalDate today=LocalDate.now();
         LocalDate endDate=today.plusYears(1);
-        for(;!today.isAfter(endDate);today=today.plusDays(1)){
-            Inventory inventory=Inventory.builder()
-                    .hotel(room.getHotel())
-                    .room(room)
-                    .bookedCount(0)
-                    .reservedCount(0)
-                    .city(room.getHotel().getCity())
-                    .date(today)
-                    .price(room.getBasePrice())
-                    .surgeFactor(BigDecimal.ONE)
-                    .totalCount(room.getTotalCount())
-                    .closed(false)
-                    .build();
-            inventoryRepository.save(inventory);
+
+        long startTime=System.currentTimeMillis();
+        int rowCount=inventoryRepository.initializeHotelInventory(hotel.getId(),today,endDate);
+        logInitializedRows("hotel",hotel.getId(),rowCount,startTime);
+
+        for(Room room: hotel.getRooms()){
+            inventoryLedger.evictAfterCommit(room.getId());
+            hotelAvailabilityIndex.refreshAfterCommit(hotel,room.getId(),today,endDate);
         }
+        repricingTracker.markDirtyAfterCommit(hotel.getId(),today,endDate);
+    }
+
+    private void logInitializedRows(String target, Long id, int rowCount, long startTime){
+        long elapsed=Math.max(1,System.currentTimeMillis()-startTime);
+        log.info("Initialized {} inventory rows for {} with ID: {} in {} ms ({} rows/sec)",
+                rowCount,target,id,elapsed,rowCount*1000L/elapsed);
     }
 
     @Override
@@ -64,6 +93,8 @@ public class InventoryServiceImpl implements InventoryService{
         log.info("Deleting inventory of room with ID: {} ",room.getId());
 //        LocalDate today=LocalDate.now();
         inventoryRepository.deleteByRoom(room);
+        inventoryLedger.evictAfterCommit(room.getId());
+        hotelAvailabilityIndex.removeRoomAfterCommit(room.getHotel(),room.getId());
     }
 
 //    @Override
@@ -82,16 +113,76 @@ public class InventoryServiceImpl implements InventoryService{
     @Override
     public Page<HotelPriceDto> searchHotels(HotelSearchRequest hotelSearchRequest) {
         log.info("Searching hotel for {} city, from {} to {}", hotelSearchRequest.getCity(),hotelSearchRequest.getStartDate(),hotelSearchRequest.getEndDate());
+        return hotelSearchCache.get(hotelSearchRequest,()->findHotels(hotelSearchRequest));
+    }
+
+    private Page<HotelPriceDto> findHotels(HotelSearchRequest hotelSearchRequest) {
         Pageable pageable= PageRequest.of(hotelSearchRequest.getPage(),hotelSearchRequest.getSize());
 
         Long dateCount= ChronoUnit.DAYS.between(hotelSearchRequest.getStartDate(),hotelSearchRequest.getEndDate())+1;
+        int roomsCount=hotelSearchRequest.getRoomsCount()==null? 1 : hotelSearchRequest.getRoomsCount();
+        String city=normalizeCity(hotelSearchRequest.getCity());
 
-        Page<HotelPriceDto> hotelPage=hotelMinPriceRepository.findHotelsWithAvailableInventory(hotelSearchRequest.getCity(),hotelSearchRequest.getStartDate(),
-                hotelSearchRequest.getEndDate(),hotelSearchRequest.getRoomsCount(),dateCount,pageable);
+        Set<Long> availableHotelIds=hotelAvailabilityIndex.findAvailableHotels(city,
+                hotelSearchRequest.getStartDate(),hotelSearchRequest.getEndDate(),roomsCount);
+        if(availableHotelIds!=null && availableHotelIds.isEmpty()){
+            return Page.empty(pageable);
+        }
+        if(availableHotelIds!=null && availableHotelIds.size()<=MAX_INDEXED_HOTEL_IDS){
+            return hotelMinPriceRepository.findHotelsWithPriceIn(city,hotelSearchRequest.getStartDate(),
+                    hotelSearchRequest.getEndDate(),availableHotelIds,pageable);
+        }
+
+        Page<HotelPriceDto> hotelPage=hotelMinPriceRepository.findHotelsWithAvailableInventory(city,hotelSearchRequest.getStartDate(),
+                hotelSearchRequest.getEndDate(),roomsCount,dateCount,pageable);
 
         return hotelPage;
     }
 
+    @Override
+    public CursorPageDto<HotelPriceDto> searchHotelsByCursor(HotelSearchRequest hotelSearchRequest) {
+        log.info("Searching hotel by cursor for {} city, from {} to {}", hotelSearchRequest.getCity(),hotelSearchRequest.getStartDate(),hotelSearchRequest.getEndDate());
+        int roomsCount=hotelSearchRequest.getRoomsCount()==null? 1 : hotelSearchRequest.getRoomsCount();
+        String city=normalizeCity(hotelSearchRequest.getCity());
+        int pageSize=Math.clamp(hotelSearchRequest.getSize()==null? 10 : hotelSearchRequest.getSize(),1,MAX_SEARCH_PAGE_SIZE);
+
+        BigDecimal lastPrice=BigDecimal.ONE.negate();
+        Long lastHotelId=0L;
+        if(hotelSearchRequest.getCursor()!=null){
+            String[] values=CursorUtils.decode(hotelSearchRequest.getCursor(),2);
+            try{
+                lastPrice=new BigDecimal(values[0]);
+                lastHotelId=Long.valueOf(values[1]);
+            }catch (NumberFormatException ex){
+                throw new BadRequestException("Invalid cursor: "+hotelSearchRequest.getCursor());
+            }
+        }
+
+        // one extra row tells whether there is a next page without a count query
+        Pageable pageable=PageRequest.of(0,pageSize+1);
+
+        Set<Long> availableHotelIds=hotelAvailabilityIndex.findAvailableHotels(city,
+                hotelSearchRequest.getStartDate(),hotelSearchRequest.getEndDate(),roomsCount);
+        List<HotelPriceDto> hotels;
+        if(availableHotelIds!=null && availableHotelIds.isEmpty()){
+            hotels=List.of();
+        }else if(availableHotelIds!=null && availableHotelIds.size()<=MAX_INDEXED_HOTEL_IDS){
+            hotels=hotelMinPriceRepository.findHotelsWithPriceInAfter(city,hotelSearchRequest.getStartDate(),
+                    hotelSearchRequest.getEndDate(),availableHotelIds,lastPrice,lastHotelId,pageable);
+        }else{
+            hotels=hotelMinPriceRepository.findHotelsWithPriceAfter(city,hotelSearchRequest.getStartDate(),
+                    hotelSearchRequest.getEndDate(),lastPrice,lastHotelId,pageable);
+        }
+
+        if(hotels.size()<=pageSize){
+            return new CursorPageDto<>(hotels,null);
+        }
+        hotels=hotels.subList(0,pageSize);
+        HotelPriceDto last=hotels.getLast();
+        return new CursorPageDto<>(hotels,CursorUtils.encode(BigDecimal.valueOf(last.getPrice()).setScale(2,RoundingMode.HALF_UP),
+                last.getHotelId()));
+    }
+
     @Override
     public List<InventoryDto> getAllInventoryByRoom(Long roomId) {
         log.info("Getting all inventory by room with room id: {}",roomId);
@@ -128,5 +219,10 @@ public class InventoryServiceImpl implements InventoryService{
                 updateInventoryRequestDto.getEndDate(),
                 updateInventoryRequestDto.getClosed(),
                 updateInventoryRequestDto.getSurgeFactor());
+        inventoryLedger.evictAfterCommit(roomId);
+        hotelAvailabilityIndex.refreshAfterCommit(room.getHotel(),roomId,
+                updateInventoryRequestDto.getStartDate(),updateInventoryRequestDto.getEndDate());
+        repricingTracker.markDirtyAfterCommit(room.getHotel().getId(),
+                updateInventoryRequestDto.getStartDate(),updateInventoryRequestDto.getEndDate());
     }
 }
@@ -0,0 +1,194 @@
+package com.poharkar.project.airBnbApp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.poharkar.project.airBnbApp.dto.BookingRequest;
+import com.poharkar.project.airBnbApp.dto.PriceQuoteDto;
+import com.poharkar.project.airBnbApp.entity.Inventory;
+import com.poharkar.project.airBnbApp.entity.Room;
+import com.poharkar.project.airBnbApp.exception.ConflictException;
+import com.poharkar.project.airBnbApp.exception.ResourceNotFoundException;
+import com.poharkar.project.airBnbApp.repository.InventoryRepository;
+import com.poharkar.project.airBnbApp.repository.RoomRepository;
+import com.poharkar.project.airBnbApp.strategy.PricingService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+// Read-only price quotes for a room and date range, without locking or reserving inventory.
+// The quote id is the quoted values signed with HMAC-SHA256, so initialiseBooking can trust the price of a
+// quote that has not expired without storing it. Quotes are cached for their TTL, repeated quotes are free.
+@Service
+@Slf4j
+public class PriceQuoteService {
+
+    private static final String HMAC_ALGORITHM="HmacSHA256";
+    private static final int MIN_SECRET_KEY_BYTES=32;
+
+    private final RoomRepository roomRepository;
+    private final InventoryRepository inventoryRepository;
+    private final PricingService pricingService;
+    private final Cache<QuoteKey, PriceQuoteDto> quotes;
+    private final SecretKeySpec secretKey;
+    private final Duration ttl;
+
+    public PriceQuoteService(RoomRepository roomRepository,
+                             InventoryRepository inventoryRepository,
+                             PricingService pricingService,
+                             MeterRegistry meterRegistry,
+                             @Value("${quote.secretKey:}") String secretKey,
+                             @Value("${quote.ttl-seconds:300}") long ttlSeconds,
+                             @Value("${quote.cache.max-size:10000}") long maxSize) {
+        this.roomRepository = roomRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.pricingService = pricingService;
+        if(secretKey.isBlank()){
+            throw new IllegalArgumentException("quote.secretKey is not set, set QUOTE_SECRET_KEY to a key of at least "
+                    +MIN_SECRET_KEY_BYTES+" bytes");
+        }
+        byte[] secretKeyBytes=secretKey.getBytes(StandardCharsets.UTF_8);
+        if(secretKeyBytes.length<MIN_SECRET_KEY_BYTES){
+            throw new IllegalArgumentException("quote.secretKey must be at least "+MIN_SECRET_KEY_BYTES+" bytes");
+        }
+        this.secretKey = new SecretKeySpec(secretKeyBytes,HMAC_ALGORITHM);
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        // cached quotes are dropped a little before they expire, so a served quote is always usable for a while
+        this.quotes = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl.dividedBy(2))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry,quotes,"priceQuotes");
+    }
+
+    @Transactional(readOnly = true)
+    public PriceQuoteDto getQuote(BookingRequest bookingRequest){
+        log.info("Quoting room: {}, date: {} to {}",bookingRequest.getRoomId(),bookingRequest.getCheckInDate(),bookingRequest.getCheckOutDate());
+        QuoteKey key=new QuoteKey(bookingRequest.getHotelId(),bookingRequest.getRoomId(),
+                bookingRequest.getCheckInDate(),bookingRequest.getCheckOutDate(),roomsCount(bookingRequest));
+        return quotes.get(key,this::createQuote);
+    }
+
+    // Returns the quoted total price when the request carries a valid, unexpired quote for exactly this booking
+    public Optional<BigDecimal> findQuotedPrice(BookingRequest bookingRequest){
+        String quoteId=bookingRequest.getQuoteId();
+        if(quoteId==null){
+            return Optional.empty();
+        }
+
+        int separator=quoteId.indexOf('.');
+        if(separator<0){
+            return Optional.empty();
+        }
+        String[] values;
+        try{
+            String payload=new String(Base64.getUrlDecoder().decode(quoteId.substring(0,separator)),StandardCharsets.UTF_8);
+            byte[] signature=Base64.getUrlDecoder().decode(quoteId.substring(separator+1));
+            if(!MessageDigest.isEqual(signature,sign(payload))){
+                log.warn("Rejected quote with an invalid signature for room: {}",bookingRequest.getRoomId());
+                return Optional.empty();
+            }
+            values=payload.split("\\|");
+            if(values.length!=7 || Instant.now().getEpochSecond()>Long.parseLong(values[6])){
+                log.info("Quote for room: {} has expired, pricing the booking again",bookingRequest.getRoomId());
+                return Optional.empty();
+            }
+        }catch (IllegalArgumentException ex){
+            return Optional.empty();
+        }
+
+        String requested=String.join("|",
+                String.valueOf(bookingRequest.getHotelId()),
+                String.valueOf(bookingRequest.getRoomId()),
+                String.valueOf(bookingRequest.getCheckInDate()),
+                String.valueOf(bookingRequest.getCheckOutDate()),
+                String.valueOf(roomsCount(bookingRequest)));
+        String quoted=String.join("|",values[0],values[1],values[2],values[3],values[4]);
+        if(!requested.equals(quoted)){
+            log.warn("Quote does not match the booking request for room: {}",bookingRequest.getRoomId());
+            return Optional.empty();
+        }
+        return Optional.of(new BigDecimal(values[5]));
+    }
+
+    private PriceQuoteDto createQuote(QuoteKey key){
+        Room room=roomRepository.findById(key.roomId())
+                .orElseThrow(()->new ResourceNotFoundException("Room not found with ID "+key.roomId()));
+        if(!room.getHotel().getId().equals(key.hotelId())){
+            throw new ResourceNotFoundException("Room not found with ID "+key.roomId()+" in hotel "+key.hotelId());
+        }
+
+        List<Inventory> inventoryList=inventoryRepository.findByRoomIdAndDateBetween(key.roomId(),
+                key.checkInDate(),key.checkOutDate());
+        long daysCount=ChronoUnit.DAYS.between(key.checkInDate(),key.checkOutDate())+1;
+        boolean available=inventoryList.size()==daysCount && inventoryList.stream().allMatch(inventory->
+                !inventory.getClosed()
+                        && inventory.getTotalCount()-inventory.getBookedCount()-inventory.getReservedCount()>=key.roomsCount());
+        if(!available){
+            throw new ConflictException("Room is not available for the given dates");
+        }
+
+        BigDecimal priceForOneRoom=pricingService.calculateTotalPrice(inventoryList);
+        BigDecimal totalPrice=priceForOneRoom.multiply(BigDecimal.valueOf(key.roomsCount()));
+
+        Instant expiresAt=Instant.now().plus(ttl).truncatedTo(ChronoUnit.SECONDS);
+        String payload=String.join("|",
+                String.valueOf(key.hotelId()),
+                String.valueOf(key.roomId()),
+                String.valueOf(key.checkInDate()),
+                String.valueOf(key.checkOutDate()),
+                String.valueOf(key.roomsCount()),
+                totalPrice.toPlainString(),
+                String.valueOf(expiresAt.getEpochSecond()));
+        Base64.Encoder encoder=Base64.getUrlEncoder().withoutPadding();
+        String quoteId=encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8))+"."+encoder.encodeToString(sign(payload));
+
+        return PriceQuoteDto.builder()
+                .quoteId(quoteId)
+                .hotelId(key.hotelId())
+                .roomId(key.roomId())
+                .checkInDate(key.checkInDate())
+                .checkOutDate(key.checkOutDate())
+                .roomsCount(key.roomsCount())
+                .totalPrice(totalPrice)
+                .expiresAt(LocalDateTime.ofInstant(expiresAt,ZoneId.systemDefault()))
+                .build();
+    }
+
+    // a quote is signed for the defaulted count, so a request without roomsCount matches the quote it got
+    private static int roomsCount(BookingRequest bookingRequest){
+        return bookingRequest.getRoomsCount()==null? 1 : bookingRequest.getRoomsCount();
+    }
+
+    private byte[] sign(String payload){
+        try{
+            Mac mac=Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(secretKey);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        }catch (GeneralSecurityException ex){
+            throw new IllegalStateException("Could not sign the price quote",ex);
+        }
+    }
+
+    private record QuoteKey(Long hotelId, Long roomId, LocalDate checkInDate, LocalDate checkOutDate, int roomsCount) {
+    }
+}
@@ -1,103 +1,244 @@
 package com.poharkar.project.airBnbApp.service;
 
 import com.poharkar.project.airBnbApp.entity.Hotel;
-import com.poharkar.project.airBnbApp.entity.HotelMinPrice;
 import com.poharkar.project.airBnbApp.entity.Inventory;
+import com.poharkar.project.airBnbApp.entity.RepricingState;
 import com.poharkar.project.airBnbApp.repository.HotelMinPriceRepository;
 import com.poharkar.project.airBnbApp.repository.HotelRepository;
 import com.poharkar.project.airBnbApp.repository.InventoryRepository;
+import com.poharkar.project.airBnbApp.repository.RepricingStateRepository;
+import com.poharkar.project.airBnbApp.strategy.HolidayCalendar;
+import com.poharkar.project.airBnbApp.strategy.HolidayCalendarLoader;
 import com.poharkar.project.airBnbApp.strategy.PricingService;
-import jakarta.transaction.Transactional;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
-@Transactional
 public class PricingUpdateService {
-    // Schedular to update inventory and HotelMinPrice table every hour
+    // Schedular to update inventory and HotelMinPrice table every hour for the changed dates, and for everything when
+    // the holiday calendar changed, which the RepricingTracker can not see. The last rollover and the priced holiday
+    // calendar are kept in RepricingState, so a restart only catches up on what changed while the service was down,
+    // and the marks still in the tracker are repriced before the process stops.
+    // Every hotel is repriced in its own transaction on a fixed pool of pricing.update.concurrency workers,
+    // so a failing hotel does not roll back the others and the persistence context only ever holds one hotel.
 
     private final HotelRepository hotelRepository;
     private final InventoryRepository inventoryRepository;
     private final HotelMinPriceRepository hotelMinPriceRepository;
     private final PricingService pricingService;
+    private final HotelSearchCache hotelSearchCache;
+    private final RepricingTracker repricingTracker;
+    private final HolidayCalendarLoader holidayCalendarLoader;
+    private final RepricingStateRepository repricingStateRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${pricing.update.concurrency:4}")
+    private int concurrency;
+
+    @Value("${pricing.update.progress-log-interval:500}")
+    private int progressLogInterval;
+
+    private LocalDate lastRolloverDate;
+    private HolidayCalendar lastHolidayCalendar;
+
+    // Reprices only the runs of days marked in the RepricingTracker since the last run
+    @Scheduled(cron= "${pricing.update.incremental-cron:0 0 * * * *}")
+    public void updateChangedPrices(){
+        LocalDate today=LocalDate.now();
+        HolidayCalendar holidayCalendar=holidayCalendarLoader.getCalendar();
+
+        // after a restart, on a new day and on a new holiday file, read what was already priced for,
+        // by this instance before a restart or by another instance
+        RepricingState repricingState=null;
+        if(holidayCalendar!=lastHolidayCalendar || !today.equals(lastRolloverDate)){
+            repricingState=repricingStateRepository.findById(RepricingState.ID).orElseGet(RepricingState::new);
+            LocalDate pricedRolloverDate=repricingState.getLastRolloverDate();
+            if(pricedRolloverDate!=null && (lastRolloverDate==null || pricedRolloverDate.isAfter(lastRolloverDate))){
+                lastRolloverDate=pricedRolloverDate;
+            }
+        }
 
-//    @Scheduled(cron= "*/5 * * * * *")
-    @Scheduled(cron= "0 0 * * * *")
-    public void updatePrices(){
-        int page=0;
-        int batchSize=100;
-
-        while(true){
-            Page<Hotel> hotelPage=hotelRepository.findAll(PageRequest.of(page,batchSize));
-            if(hotelPage.isEmpty()){
-                break;
+        // a new holiday file changes prices without any write, it is priced once, not by every instance or restart
+        boolean pricedHolidayCalendar=false;
+        if(holidayCalendar!=lastHolidayCalendar){
+            if(!holidayCalendar.getFingerprint().equals(repricingState.getHolidayCalendarFingerprint())){
+                repricingTracker.drain();
+                updatePrices();
+                lastRolloverDate=today;
+                pricedHolidayCalendar=true;
             }
+            lastHolidayCalendar=holidayCalendar;
+        }
+
+        if(!today.equals(lastRolloverDate)){
+            markUrgencyWindowRollover(today);
+            lastRolloverDate=today;
+        }
+
+        updateTrackedPrices(today);
+
+        if(repricingState!=null){
+            repricingState.setId(RepricingState.ID);
+            repricingState.setLastRolloverDate(lastRolloverDate);
+            // only the calendar priced here, an instance still on an older file during a deploy does not write it back
+            if(pricedHolidayCalendar){
+                repricingState.setHolidayCalendarFingerprint(holidayCalendar.getFingerprint());
+            }
+            repricingStateRepository.save(repricingState);
+        }
+    }
 
-            hotelPage.getContent().forEach(hotel->updateHotelPrices(hotel));
+    // The marks of the last hour are only held in memory, they are priced before they are lost with the process
+    @PreDestroy
+    public void updatePricesBeforeShutdown(){
+        updateTrackedPrices(LocalDate.now());
+    }
+
+    private void updateTrackedPrices(LocalDate today){
+        Map<Long, RepricingTracker.DirtyDates> dirtyHotels=repricingTracker.drain();
+        if(dirtyHotels.isEmpty()){
+            return;
+        }
+
+        // only the changed runs of days inside the one year horizon, not the span between the first and last change
+        LocalDate horizonEndDate=today.plusYears(1);
+        Map<Long, List<RepricingTracker.DirtyRange>> repricedHotels=new HashMap<>();
+        dirtyHotels.forEach((hotelId,dates)->{
+            List<RepricingTracker.DirtyRange> runs=dates.runs(today,horizonEndDate);
+            if(!runs.isEmpty()){
+                repricedHotels.put(hotelId,runs);
+            }
+        });
 
+        List<Long> failedHotelIds=updateHotels("changed",repricedHotels);
 
-            page++;
+        // keep the changes of the failed hotels for the next run
+        for(Long hotelId: failedHotelIds){
+            markDirty(hotelId,repricedHotels.get(hotelId));
         }
     }
 
-    private void updateHotelPrices(Hotel hotel){
-        log.info("Updating hotel prices for hotel ID: {}",hotel.getId());
+    // The days that entered the 7 day urgency window of UrgencyPricingStrategy since the last rollover change price
+    // without any write. Every day since then is marked, so a skipped day is caught up, and the whole window when
+    // the last rollover is not known.
+    private void markUrgencyWindowRollover(LocalDate today){
+        LocalDate windowEndDate=today.plusDays(6);
+        LocalDate startDate=today;
+        if(lastRolloverDate!=null && lastRolloverDate.plusDays(7).isAfter(today)){
+            startDate=lastRolloverDate.plusDays(7);
+        }
+        if(startDate.isAfter(windowEndDate)) return;
+
+        LocalDate firstUrgentDate=startDate;
+        hotelRepository.findActiveHotelIds()
+                .forEach(hotelId->repricingTracker.markDirty(hotelId,firstUrgentDate,windowEndDate));
+    }
 
+    // Full sweep over every hotel for a year
+//    @Scheduled(cron= "*/5 * * * * *")
+    private void updatePrices(){
         LocalDate startDate=LocalDate.now();
-        LocalDate endDate=LocalDate.now().plusYears(1);
+        List<RepricingTracker.DirtyRange> runs=List.of(new RepricingTracker.DirtyRange(startDate,startDate.plusYears(1)));
 
-        List<Inventory> inventoryList=inventoryRepository.findByHotelAndDateBetween(hotel,startDate,endDate);
+        Map<Long, List<RepricingTracker.DirtyRange>> hotels=new LinkedHashMap<>();
+        for(Long hotelId: hotelRepository.findActiveHotelIds()){
+            hotels.put(hotelId,runs);
+        }
+        for(Long hotelId: updateHotels("all",hotels)){
+            markDirty(hotelId,runs);
+        }
+    }
 
-        updateInventoryPrices(inventoryList);
-        
-        updateHotelMinPrice(hotel,inventoryList,startDate,endDate);
+    private void markDirty(Long hotelId, List<RepricingTracker.DirtyRange> runs){
+        for(RepricingTracker.DirtyRange run: runs){
+            repricingTracker.markDirty(hotelId,run.startDate(),run.endDate());
+        }
     }
 
-    private void updateHotelMinPrice(Hotel hotel, List<Inventory> inventoryList, LocalDate startDate, LocalDate endDate) {
+    // Reprices every hotel in its own transaction and returns the ids of the hotels that failed
+    private List<Long> updateHotels(String sweep, Map<Long, List<RepricingTracker.DirtyRange>> hotels){
+        long startTime=System.currentTimeMillis();
+        log.info("Updating {} hotel prices for {} hotels with {} workers",sweep,hotels.size(),concurrency);
+
+        AtomicInteger doneCount=new AtomicInteger();
+        List<Long> failedHotelIds=new ArrayList<>();
+        try(ExecutorService executor=Executors.newFixedThreadPool(concurrency)){
+            Map<Long, Future<?>> tasks=new LinkedHashMap<>();
+            hotels.forEach((hotelId,runs)->tasks.put(hotelId,executor.submit(()->{
+                updateHotelPrices(hotelId,runs);
+                int done=doneCount.incrementAndGet();
+                if(done%progressLogInterval==0){
+                    log.info("Updated {} hotel prices for {} of {} hotels in {} ms",sweep,done,hotels.size(),
+                            System.currentTimeMillis()-startTime);
+                }
+            })));
+
+            for(Map.Entry<Long, Future<?>> task: tasks.entrySet()){
+                try{
+                    task.getValue().get();
+                }catch (ExecutionException ex){
+                    failedHotelIds.add(task.getKey());
+                    log.error("Failed to update hotel prices for hotel ID: {}",task.getKey(),ex.getCause());
+                }
+            }
+        }catch (InterruptedException ex){
+            Thread.currentThread().interrupt();
+        }
 
-        // update the min price per day for the hotel
-        Map<LocalDate,BigDecimal> dailyMinPrices=inventoryList.stream()
-                .collect(Collectors.groupingBy(
-                        Inventory::getDate,
-                        Collectors.mapping(Inventory::getPrice,Collectors.minBy(Comparator.naturalOrder()))
-                ))
-                .entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, e->e.getValue().orElse(BigDecimal.ZERO)));
-
-        // Prepare HotelPrice entities in bulk
-
-        List<HotelMinPrice> hotelPrices=new ArrayList<>();
-        dailyMinPrices.forEach((date,price)->{
-            HotelMinPrice hotelPrice=hotelMinPriceRepository.findByHotelAndDate(hotel,date)
-                    .orElse(new HotelMinPrice(hotel,date));
-            hotelPrice.setPrice(price);
-            hotelPrices.add(hotelPrice);
-        });
+        log.info("Updated {} hotel prices for {} hotels in {} ms, {} failed",sweep,doneCount.get(),
+                System.currentTimeMillis()-startTime,failedHotelIds.size());
+        return failedHotelIds;
+    }
 
-        //save all HotelPrice entities in bulk
-        hotelMinPriceRepository.saveAll(hotelPrices);
+    private void updateHotelPrices(Long hotelId, List<RepricingTracker.DirtyRange> runs){
+        transactionTemplate.executeWithoutResult(status->
+                hotelRepository.findById(hotelId).ifPresent(hotel->{
+                    for(RepricingTracker.DirtyRange run: runs){
+                        updateHotelPrices(hotel,run.startDate(),run.endDate());
+                    }
+                    hotelSearchCache.evictCityAfterCommit(hotel.getCity());
+                }));
     }
 
-    private void updateInventoryPrices(List<Inventory> inventoryList) {
-        inventoryList.forEach(inventory -> {
-            BigDecimal dynamicPrice=pricingService.calculateDynamicPricing(inventory);
-            inventory.setPrice(dynamicPrice);
-        });
+    private void updateHotelPrices(Hotel hotel, LocalDate startDate, LocalDate endDate){
+        log.info("Updating hotel prices for hotel ID: {} between {} - {}",hotel.getId(),startDate,endDate);
+
+        List<Inventory> inventoryList=inventoryRepository.findByHotelAndDateBetween(hotel,startDate,endDate);
 
-        inventoryRepository.saveAll(inventoryList);
+        updateInventoryPrices(inventoryList);
+        
+        // update the min price per day for the hotel
+        int minPriceCount=hotelMinPriceRepository.upsertHotelMinPrices(hotel.getId(),startDate,endDate);
+        log.debug("Updated {} min prices for hotel ID: {}",minPriceCount,hotel.getId());
+    }
+
+    private void updateInventoryPrices(List<Inventory> inventoryList) {
+        if(inventoryList.isEmpty()) return;
+        pricingService.applyDynamicPricing(inventoryList);
+
+        Long[] ids=new Long[inventoryList.size()];
+        BigDecimal[] prices=new BigDecimal[inventoryList.size()];
+        for(int i=0;i<inventoryList.size();i++){
+            ids[i]=inventoryList.get(i).getId();
+            prices[i]=inventoryList.get(i).getPrice();
+        }
+        int updatedCount=inventoryRepository.updatePrices(ids,prices);
+        log.debug("Updated {} of {} inventory prices",updatedCount,inventoryList.size());
     }
 }
@@ -0,0 +1,111 @@
+package com.poharkar.project.airBnbApp.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Collects the inventory dates whose dynamic price may have changed since the last repricing run.
+// Every hotel keeps a bitset of its changed days, the hourly job drains them and only reprices the
+// contiguous runs of changed days. The set lives in memory, PricingUpdateService reprices it before the process stops.
+@Component
+public class RepricingTracker {
+
+    private final Map<Long, DirtyDates> dirtyHotels=new ConcurrentHashMap<>();
+
+    public void markDirtyAfterCommit(Long hotelId, LocalDate startDate, LocalDate endDate){
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markDirty(hotelId,startDate,endDate);
+                }
+            });
+        }else{
+            markDirty(hotelId,startDate,endDate);
+        }
+    }
+
+    // Marks every day between startDate and endDate, both inclusive
+    public void markDirty(Long hotelId, LocalDate startDate, LocalDate endDate){
+        if(startDate.isAfter(endDate)) return;
+        // the bitset is only ever changed inside compute, drain removes it under the same bin lock
+        dirtyHotels.compute(hotelId,(id,dates)->{
+            DirtyDates dirtyDates=dates==null? new DirtyDates() : dates;
+            dirtyDates.mark(startDate,endDate);
+            return dirtyDates;
+        });
+    }
+
+    // Removes and returns everything marked so far
+    public Map<Long, DirtyDates> drain(){
+        Map<Long, DirtyDates> drained=new HashMap<>();
+        for(Long hotelId: dirtyHotels.keySet()){
+            DirtyDates dates=dirtyHotels.remove(hotelId);
+            if(dates!=null){
+                drained.put(hotelId,dates);
+            }
+        }
+        return drained;
+    }
+
+    public int size(){
+        return dirtyHotels.size();
+    }
+
+    // The changed days of one hotel, bit i is the day firstEpochDay + i
+    public static class DirtyDates {
+
+        private long firstEpochDay;
+        private BitSet days=new BitSet();
+
+        void mark(LocalDate startDate, LocalDate endDate){
+            long startDay=startDate.toEpochDay();
+            long endDay=endDate.toEpochDay();
+            if(days.isEmpty()){
+                firstEpochDay=startDay;
+            }else if(startDay<firstEpochDay){
+                BitSet shifted=new BitSet();
+                int shift=Math.toIntExact(firstEpochDay-startDay);
+                for(int i=days.nextSetBit(0);i>=0;i=days.nextSetBit(i+1)){
+                    shifted.set(i+shift);
+                }
+                days=shifted;
+                firstEpochDay=startDay;
+            }
+            days.set(Math.toIntExact(startDay-firstEpochDay),Math.toIntExact(endDay-firstEpochDay)+1);
+        }
+
+        // The contiguous runs of changed days between fromDate and toDate, both inclusive
+        public List<DirtyRange> runs(LocalDate fromDate, LocalDate toDate){
+            List<DirtyRange> runs=new ArrayList<>();
+            if(days.isEmpty() || fromDate.isAfter(toDate)) return runs;
+
+            long fromIndex=Math.max(0,fromDate.toEpochDay()-firstEpochDay);
+            long toIndex=toDate.toEpochDay()-firstEpochDay;
+            if(toIndex<0 || fromIndex>=days.length()) return runs;
+
+            int start=days.nextSetBit(Math.toIntExact(fromIndex));
+            while(start>=0 && start<=toIndex){
+                int end=Math.toIntExact(Math.min(days.nextClearBit(start)-1,toIndex));
+                runs.add(new DirtyRange(LocalDate.ofEpochDay(firstEpochDay+start),LocalDate.ofEpochDay(firstEpochDay+end)));
+                start=days.nextSetBit(end+1);
+            }
+            return runs;
+        }
+
+        public int size(){
+            return days.cardinality();
+        }
+    }
+
+    public record DirtyRange(LocalDate startDate, LocalDate endDate) {
+    }
+}
@@ -15,6 +15,7 @@ import org.modelmapper.ModelMapper;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -28,6 +29,7 @@ public class RoomServiceImpl implements RoomService{
     private final RoomRepository roomRepository;
     private final HotelRepository hotelRepository;
     private final InventoryService inventoryService;
+    private final RepricingTracker repricingTracker;
     private final ModelMapper modelMapper;
 
 
@@ -118,9 +120,11 @@ public class RoomServiceImpl implements RoomService{
         modelMapper.map(roomDto,room);
         room.setId(roomId);
 
-        // TODO: if the price or inventory is updated fro this room
+        // TODO: if the inventory is updated fro this room
 
         room=roomRepository.save(room);
+        // the base price may have changed
+        repricingTracker.markDirtyAfterCommit(hotelId,LocalDate.now(),LocalDate.now().plusYears(1));
         return modelMapper.map(room,RoomDto.class);
     }
 }
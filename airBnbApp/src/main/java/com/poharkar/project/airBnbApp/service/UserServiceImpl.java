@@ -1,49 +1,74 @@
 package com.poharkar.project.airBnbApp.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.poharkar.project.airBnbApp.dto.ProfileUpdateRequestDto;
 import com.poharkar.project.airBnbApp.dto.UserDto;
 import com.poharkar.project.airBnbApp.entity.User;
 import com.poharkar.project.airBnbApp.exception.ResourceNotFoundException;
 import com.poharkar.project.airBnbApp.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
 import static com.poharkar.project.airBnbApp.util.AppUtils.getCurrentUser;
 
+// The authenticated principal only carries the token claims (id, email, roles), code that needs the
+// full user goes through getUserById, which keeps a bounded cache (user.cache.*) invalidated on profile updates.
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class UserServiceImpl implements UserService, UserDetailsService {
 
     private final UserRepository userRepository;
     private final ModelMapper modelMapper;
+    private final Cache<Long, User> users;
+
+    public UserServiceImpl(UserRepository userRepository,
+                           ModelMapper modelMapper,
+                           @Value("${user.cache.max-size:10000}") long maxSize,
+                           @Value("${user.cache.ttl-seconds:600}") long ttlSeconds,
+                           MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.modelMapper = modelMapper;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry,users,"users");
+    }
 
     @Override
     public User getUserById(Long id) {
-        return userRepository.findById(id)
-                .orElseThrow(()->new ResourceNotFoundException("User does not exist with id: "+id));
+        return users.get(id,userId->userRepository.findById(userId)
+                .orElseThrow(()->new ResourceNotFoundException("User does not exist with id: "+userId)));
     }
 
     @Override
     public void updateProfile(ProfileUpdateRequestDto profileUpdateRequestDto) {
-        User user=getCurrentUser();
+        Long userId=getCurrentUser().getId();
+        User user=userRepository.findById(userId)
+                .orElseThrow(()->new ResourceNotFoundException("User does not exist with id: "+userId));
 
         if(profileUpdateRequestDto.getDateOfBirth()!=null) user.setDateOfBirth(profileUpdateRequestDto.getDateOfBirth());
         if(profileUpdateRequestDto.getGender()!=null) user.setGender(profileUpdateRequestDto.getGender());
         if(profileUpdateRequestDto.getName()!=null) user.setName(profileUpdateRequestDto.getName());
 
         userRepository.save(user);
-
+        users.invalidate(userId);
     }
 
     @Override
     public UserDto getMyProfile() {
-        User user=getCurrentUser();
+        User user=getUserById(getCurrentUser().getId());
         log.info("Getting the profile for user with Id: {}",user.getId());
         return modelMapper.map(user,UserDto.class);
     }
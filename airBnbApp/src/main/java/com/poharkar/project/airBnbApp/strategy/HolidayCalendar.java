@@ -0,0 +1,122 @@
+package com.poharkar.project.airBnbApp.strategy;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.*;
+
+import static com.poharkar.project.airBnbApp.util.AppUtils.normalizeCity;
+
+// Immutable holiday calendar, one bitset of day-of-year bits per city and year.
+// Lines look like "city,2026-12-25", a city of "*" applies to every city, blank lines and # comments are skipped.
+// City names are normalised once when the file is parsed, a lookup normalises its city and is one HashMap get.
+// Batches of one city resolve their CityCalendar once with calendarFor and test each day against it, without the normalisation.
+// The fingerprint identifies the holidays, not the file: reordered lines, comments and case give the same fingerprint.
+public class HolidayCalendar {
+
+    public static final HolidayCalendar EMPTY=new HolidayCalendar(Map.of(),new CityCalendar(0,new long[0][]),
+            fingerprint(new TreeSet<>()));
+
+    private static final String ALL_CITIES="*";
+    private static final int WORDS_PER_YEAR=6; // 366 days
+
+    private final Map<String, CityCalendar> cities;
+    private final CityCalendar allCities;
+    private final String fingerprint;
+
+    private HolidayCalendar(Map<String, CityCalendar> cities, CityCalendar allCities, String fingerprint) {
+        this.cities = cities;
+        this.allCities = allCities;
+        this.fingerprint = fingerprint;
+    }
+
+    public String getFingerprint(){
+        return fingerprint;
+    }
+
+    public boolean isHoliday(String city, LocalDate date){
+        return calendarFor(city).contains(date);
+    }
+
+    CityCalendar calendarFor(String city){
+        CityCalendar calendar=city==null? null : cities.get(normalizeCity(city));
+        return calendar==null? allCities : calendar;
+    }
+
+    public static HolidayCalendar parse(List<String> lines){
+        Map<String, Map<Integer, long[]>> holidays=new HashMap<>();
+        SortedSet<String> entries=new TreeSet<>();
+        for(String line: lines){
+            String trimmed=line.trim();
+            if(trimmed.isEmpty() || trimmed.startsWith("#")){
+                continue;
+            }
+            String[] values=trimmed.split(",");
+            if(values.length!=2){
+                throw new IllegalArgumentException("Invalid holiday line: "+line);
+            }
+            LocalDate date=LocalDate.parse(values[1].trim());
+            entries.add(normalizeCity(values[0])+","+date);
+            long[] bits=holidays.computeIfAbsent(normalizeCity(values[0]),city->new HashMap<>())
+                    .computeIfAbsent(date.getYear(),year->new long[WORDS_PER_YEAR]);
+            int day=date.getDayOfYear()-1;
+            bits[day>>>6]|=1L<<day;
+        }
+
+        Map<Integer, long[]> allCityHolidays=holidays.getOrDefault(ALL_CITIES,Map.of());
+        Map<String, CityCalendar> cities=new HashMap<>();
+        holidays.forEach((city,years)->{
+            if(ALL_CITIES.equals(city)) return;
+            Map<Integer, long[]> merged=new HashMap<>(years);
+            allCityHolidays.forEach((year,bits)->merged.merge(year,bits,HolidayCalendar::or));
+            cities.put(city,CityCalendar.of(merged));
+        });
+        return new HolidayCalendar(cities,CityCalendar.of(allCityHolidays),fingerprint(entries));
+    }
+
+    // SHA-256 of the sorted "city,date" entries
+    private static String fingerprint(SortedSet<String> entries){
+        try{
+            MessageDigest digest=MessageDigest.getInstance("SHA-256");
+            for(String entry: entries){
+                digest.update(entry.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        }catch (NoSuchAlgorithmException ex){
+            throw new IllegalStateException("Could not fingerprint the holiday calendar",ex);
+        }
+    }
+
+    private static long[] or(long[] bits, long[] other){
+        long[] result=bits.clone();
+        for(int i=0;i<result.length;i++){
+            result[i]|=other[i];
+        }
+        return result;
+    }
+
+    record CityCalendar(int firstYear, long[][] years) {
+
+        static CityCalendar of(Map<Integer, long[]> yearBits){
+            if(yearBits.isEmpty()){
+                return new CityCalendar(0,new long[0][]);
+            }
+            int firstYear=Collections.min(yearBits.keySet());
+            int lastYear=Collections.max(yearBits.keySet());
+            long[][] years=new long[lastYear-firstYear+1][];
+            yearBits.forEach((year,bits)->years[year-firstYear]=bits);
+            return new CityCalendar(firstYear,years);
+        }
+
+        boolean contains(LocalDate date){
+            int index=date.getYear()-firstYear;
+            if(index<0 || index>=years.length || years[index]==null){
+                return false;
+            }
+            int day=date.getDayOfYear()-1;
+            return (years[index][day>>>6] & (1L<<day))!=0;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.poharkar.project.airBnbApp.strategy;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// Loads the HolidayCalendar from pricing.holidays.location and swaps in a new one when the file changes.
+// Already priced inventory picks up a changed calendar with the next full repricing sweep.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HolidayCalendarLoader {
+
+    private final ResourceLoader resourceLoader;
+
+    @Value("${pricing.holidays.location:classpath:holidays.csv}")
+    private String location;
+
+    private volatile HolidayCalendar calendar=HolidayCalendar.EMPTY;
+    private long lastModified=-1;
+
+    public HolidayCalendar getCalendar(){
+        return calendar;
+    }
+
+    @PostConstruct
+    void load(){
+        reloadIfChanged();
+    }
+
+    @Scheduled(fixedDelayString = "${pricing.holidays.reload-interval-ms:60000}")
+    public synchronized void reloadIfChanged(){
+        Resource resource=resourceLoader.getResource(location);
+        if(!resource.exists()){
+            if(lastModified!=0){
+                log.warn("Holiday calendar {} not found, pricing without holidays",location);
+                calendar=HolidayCalendar.EMPTY;
+                lastModified=0;
+            }
+            return;
+        }
+
+        try{
+            long modified=resource.lastModified();
+            if(modified==lastModified){
+                return;
+            }
+            try(InputStream inputStream=resource.getInputStream()){
+                List<String> lines=new String(inputStream.readAllBytes(),StandardCharsets.UTF_8).lines().toList();
+                calendar=HolidayCalendar.parse(lines);
+                lastModified=modified;
+                log.info("Loaded holiday calendar {} with {} lines",location,lines.size());
+            }
+        }catch (IOException | RuntimeException ex){
+            // keep the previous calendar until the file is fixed
+            log.error("Failed to load holiday calendar {}",location,ex);
+        }
+    }
+}
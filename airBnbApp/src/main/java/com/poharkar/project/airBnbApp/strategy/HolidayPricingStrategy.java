@@ -9,14 +9,15 @@ import java.math.BigDecimal;
 public class HolidayPricingStrategy implements PricingStrategy{
 
     private final PricingStrategy wrapped;
+    private final HolidayCalendar holidayCalendar;
 
     @Override
     public BigDecimal calculatePrice(Inventory inventory) {
         BigDecimal price=wrapped.calculatePrice(inventory);
 
-        boolean isTodayHoliday=true; //call an api or check with local data
+        boolean isHoliday=holidayCalendar.isHoliday(inventory.getCity(),inventory.getDate());
 
-        if(isTodayHoliday){
+        if(isHoliday){
             price=price.multiply(BigDecimal.valueOf(1.25));
         }
         return price;
@@ -0,0 +1,130 @@
+package com.poharkar.project.airBnbApp.strategy;
+
+import com.poharkar.project.airBnbApp.entity.Inventory;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+
+// The Base -> Surge -> Occupancy -> Urgency -> Holiday strategy chain flattened into one pass.
+// Per-batch values (today, the holiday calendar) are resolved once in the constructor, the holiday calendar of a city
+// once per run of rows of that city (a repricing batch is one hotel, so once per batch), and a price is computed
+// on the long unscaled values of the BigDecimals, the scales are added like BigDecimal.multiply does, so the
+// result is equal (value and scale) to the strategy chain. Rows that overflow a long fall back to BigDecimal.
+// It holds no per-call state, so PricingService shares one instance between threads.
+public class PricingPipeline {
+
+    private static final BigDecimal OCCUPANCY_FACTOR=BigDecimal.valueOf(1.2);
+    private static final BigDecimal URGENCY_FACTOR=BigDecimal.valueOf(1.15);
+    private static final BigDecimal HOLIDAY_FACTOR=BigDecimal.valueOf(1.25);
+
+    private static final long OCCUPANCY_UNSCALED=OCCUPANCY_FACTOR.unscaledValue().longValueExact();
+    private static final int OCCUPANCY_SCALE=OCCUPANCY_FACTOR.scale();
+    private static final long URGENCY_UNSCALED=URGENCY_FACTOR.unscaledValue().longValueExact();
+    private static final int URGENCY_SCALE=URGENCY_FACTOR.scale();
+    private static final long HOLIDAY_UNSCALED=HOLIDAY_FACTOR.unscaledValue().longValueExact();
+    private static final int HOLIDAY_SCALE=HOLIDAY_FACTOR.scale();
+
+    private final LocalDate today;
+    private final LocalDate urgencyEndDate;
+    private final HolidayCalendar holidayCalendar;
+
+    public PricingPipeline(LocalDate today, HolidayCalendar holidayCalendar) {
+        this.today = today;
+        this.urgencyEndDate = today.plusDays(7);
+        this.holidayCalendar = holidayCalendar;
+    }
+
+    public boolean isBuiltFor(LocalDate today, HolidayCalendar holidayCalendar){
+        return this.today.equals(today) && this.holidayCalendar==holidayCalendar;
+    }
+
+    public BigDecimal calculatePrice(Inventory inventory){
+        return calculatePrice(inventory,holidayCalendar.calendarFor(inventory.getCity()));
+    }
+
+    private BigDecimal calculatePrice(Inventory inventory, HolidayCalendar.CityCalendar cityCalendar){
+        BigDecimal basePrice=inventory.getRoom().getBasePrice();
+        BigDecimal surgeFactor=inventory.getSurgeFactor();
+        boolean occupied=isOccupied(inventory);
+        boolean urgent=isUrgent(inventory);
+        boolean holiday=cityCalendar.contains(inventory.getDate());
+
+        if(fitsInLong(basePrice) && fitsInLong(surgeFactor)){
+            try{
+                long unscaled=Math.multiplyExact(basePrice.unscaledValue().longValue(),surgeFactor.unscaledValue().longValue());
+                int scale=basePrice.scale()+surgeFactor.scale();
+                if(occupied){
+                    unscaled=Math.multiplyExact(unscaled,OCCUPANCY_UNSCALED);
+                    scale+=OCCUPANCY_SCALE;
+                }
+                if(urgent){
+                    unscaled=Math.multiplyExact(unscaled,URGENCY_UNSCALED);
+                    scale+=URGENCY_SCALE;
+                }
+                if(holiday){
+                    unscaled=Math.multiplyExact(unscaled,HOLIDAY_UNSCALED);
+                    scale+=HOLIDAY_SCALE;
+                }
+                return BigDecimal.valueOf(unscaled,scale);
+            }catch (ArithmeticException ex){
+                // overflow, continue with BigDecimal below
+            }
+        }
+
+        BigDecimal price=basePrice.multiply(surgeFactor);
+        if(occupied) price=price.multiply(OCCUPANCY_FACTOR);
+        if(urgent) price=price.multiply(URGENCY_FACTOR);
+        if(holiday) price=price.multiply(HOLIDAY_FACTOR);
+        return price;
+    }
+
+    // Sets the dynamic price on every inventory of the batch
+    public void applyPrices(List<Inventory> inventoryList){
+        CityCalendars cityCalendars=new CityCalendars();
+        for(Inventory inventory: inventoryList){
+            inventory.setPrice(calculatePrice(inventory,cityCalendars.of(inventory.getCity())));
+        }
+    }
+
+    public BigDecimal calculateTotalPrice(List<Inventory> inventoryList){
+        CityCalendars cityCalendars=new CityCalendars();
+        BigDecimal totalPrice=BigDecimal.ZERO;
+        for(Inventory inventory: inventoryList){
+            totalPrice=totalPrice.add(calculatePrice(inventory,cityCalendars.of(inventory.getCity())));
+        }
+        return totalPrice;
+    }
+
+    private boolean isOccupied(Inventory inventory){
+        // integer division kept from OccupancyPricingStrategy, only a fully booked day counts as occupied
+        double occupancyRate= (double) (inventory.getBookedCount()/inventory.getTotalCount());
+        return occupancyRate > 0.8;
+    }
+
+    private boolean isUrgent(Inventory inventory){
+        return !inventory.getDate().isBefore(today) && inventory.getDate().isBefore(urgencyEndDate);
+    }
+
+    // The calendar of the last city seen in a batch, looked up again only when the city changes
+    private class CityCalendars {
+
+        private String city;
+        private HolidayCalendar.CityCalendar calendar;
+
+        HolidayCalendar.CityCalendar of(String city){
+            if(calendar==null || !Objects.equals(this.city,city)){
+                this.city=city;
+                this.calendar=holidayCalendar.calendarFor(city);
+            }
+            return calendar;
+        }
+    }
+
+    private static boolean fitsInLong(BigDecimal value){
+        BigInteger unscaled=value.unscaledValue();
+        return unscaled.bitLength()<64;
+    }
+}
@@ -1,30 +1,44 @@
 package com.poharkar.project.airBnbApp.strategy;
 
 import com.poharkar.project.airBnbApp.entity.Inventory;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 @Service
+@RequiredArgsConstructor
 public class PricingService {
 
-    public BigDecimal calculateDynamicPricing(Inventory inventory){
-        PricingStrategy pricingStrategy=new BasePricingStrategy();
+    private final HolidayCalendarLoader holidayCalendarLoader;
+
+    // rebuilt only when the date rolls over or the holiday file is reloaded
+    private volatile PricingPipeline pipeline;
 
-        //apply additional strategies
-        pricingStrategy =new SurgePricingStrategy(pricingStrategy);
-        pricingStrategy=new OccupancyPricingStrategy(pricingStrategy);
-        pricingStrategy=new UrgencyPricingStrategy((pricingStrategy));
-        pricingStrategy=new HolidayPricingStrategy(pricingStrategy);
+    public BigDecimal calculateDynamicPricing(Inventory inventory){
+        return pipeline().calculatePrice(inventory);
+    }
 
-        return pricingStrategy.calculatePrice(inventory);
+    // Sets the dynamic price of every inventory in one pass
+    public void applyDynamicPricing(List<Inventory> inventoryList){
+        pipeline().applyPrices(inventoryList);
     }
 
     //    Return the sum of price of this inventory list
     public BigDecimal calculateTotalPrice(List<Inventory> inventoryList) {
-        return inventoryList.stream()
-                .map(this::calculateDynamicPricing)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return pipeline().calculateTotalPrice(inventoryList);
+    }
+
+    private PricingPipeline pipeline(){
+        LocalDate today=LocalDate.now();
+        HolidayCalendar holidayCalendar=holidayCalendarLoader.getCalendar();
+        PricingPipeline current=pipeline;
+        if(current==null || !current.isBuiltFor(today,holidayCalendar)){
+            current=new PricingPipeline(today,holidayCalendar);
+            pipeline=current;
+        }
+        return current;
     }
 }
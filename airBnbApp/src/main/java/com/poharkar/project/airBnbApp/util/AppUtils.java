@@ -3,8 +3,15 @@ package com.poharkar.project.airBnbApp.util;
 import com.poharkar.project.airBnbApp.entity.User;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.util.Locale;
+
 public class AppUtils {
     public static User getCurrentUser(){
         return (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
     }
+
+    // Cities are matched ignoring case and surrounding spaces, so " Pune" and "pune" find the hotels of "Pune"
+    public static String normalizeCity(String city){
+        return city==null? null : city.trim().toLowerCase(Locale.ROOT);
+    }
 }
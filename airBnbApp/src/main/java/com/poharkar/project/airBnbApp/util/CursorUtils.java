@@ -0,0 +1,34 @@
+package com.poharkar.project.airBnbApp.util;
+
+import com.poharkar.project.airBnbApp.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Opaque continuation tokens for keyset pagination, the last sort key values joined and base64url encoded
+public class CursorUtils {
+    private static final String SEPARATOR="|";
+
+    public static String encode(Object... values){
+        StringBuilder cursor=new StringBuilder();
+        for(int i=0;i<values.length;i++){
+            if(i>0) cursor.append(SEPARATOR);
+            cursor.append(values[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(cursor.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String[] decode(String cursor, int valueCount){
+        try{
+            String decoded=new String(Base64.getUrlDecoder().decode(cursor),StandardCharsets.UTF_8);
+            String[] values=decoded.split("\\|",-1);
+            if(values.length!=valueCount){
+                throw new BadRequestException("Invalid cursor: "+cursor);
+            }
+            return values;
+        }catch (IllegalArgumentException ex){
+            throw new BadRequestException("Invalid cursor: "+cursor);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+-- upsertHotelMinPrices writes ON CONFLICT ON CONSTRAINT unique_hotel_min_price_hotel_date.
+-- Keep the most recently updated row per hotel and date, the next repricing run overwrites it anyway.
+DELETE FROM hotel_min_price
+WHERE id IN (
+    SELECT id
+    FROM (
+        SELECT id,
+               ROW_NUMBER() OVER (PARTITION BY hotel_id, date ORDER BY updated_at DESC NULLS LAST, id DESC) AS row_number
+        FROM hotel_min_price
+    ) ranked
+    WHERE ranked.row_number > 1
+);
+
+ALTER TABLE hotel_min_price
+    ADD CONSTRAINT unique_hotel_min_price_hotel_date UNIQUE (hotel_id, date);
@@ -0,0 +1,2 @@
+-- expiry sweep: holds in a status older than the cutoff
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_booking_status_created_at ON booking (booking_status, created_at);
@@ -0,0 +1,12 @@
+-- daily revenue rollup for hotel reports, filled by HotelRevenueRollupService and its backfill
+CREATE TABLE hotel_daily_revenue (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    hotel_id        BIGINT        NOT NULL REFERENCES hotel (id),
+    date            DATE          NOT NULL,
+    confirmed_count INTEGER       NOT NULL,
+    revenue         NUMERIC(14,2) NOT NULL,
+    cancelled_count INTEGER       NOT NULL,
+    created_at      TIMESTAMP(6),
+    updated_at      TIMESTAMP(6),
+    CONSTRAINT unique_hotel_daily_revenue_hotel_date UNIQUE (hotel_id, date)
+);
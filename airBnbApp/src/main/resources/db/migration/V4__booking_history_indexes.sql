@@ -0,0 +1,3 @@
+-- booking history pages: a guest's or a hotel's bookings, newest first
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_booking_user_created_at ON booking (user_id, created_at);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_booking_hotel_created_at ON booking (hotel_id, created_at);
@@ -0,0 +1,7 @@
+-- what the repricing job last priced for, read after a restart instead of repricing every hotel
+CREATE TABLE repricing_state (
+    id                           INTEGER PRIMARY KEY,
+    last_rollover_date           DATE,
+    holiday_calendar_fingerprint VARCHAR(64),
+    updated_at                   TIMESTAMP(6)
+);
@@ -0,0 +1,147 @@
+package com.poharkar.project.airBnbApp.repository;
+
+import com.poharkar.project.airBnbApp.dto.BookingDto;
+import com.poharkar.project.airBnbApp.entity.Booking;
+import com.poharkar.project.airBnbApp.entity.Guest;
+import com.poharkar.project.airBnbApp.entity.Hotel;
+import com.poharkar.project.airBnbApp.entity.Room;
+import com.poharkar.project.airBnbApp.entity.User;
+import com.poharkar.project.airBnbApp.entity.enums.BookingStatus;
+import com.poharkar.project.airBnbApp.entity.enums.Role;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@EnabledIf(PostgresRepositoryTest.POSTGRES_AVAILABLE)
+class BookingRepositoryTest extends PostgresRepositoryTest {
+
+    private static final int BOOKING_COUNT=5;
+    private static final int GUESTS_PER_BOOKING=3;
+    private static final int PAGE_SIZE=2;
+
+    private final ModelMapper modelMapper=new ModelMapper();
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    private User user;
+    private Hotel hotel;
+
+    @BeforeEach
+    void createBookings(){
+        user=createUser("guest@test.com",Role.GUEST);
+        User owner=createUser("owner@test.com",Role.HOTEL_MANAGER);
+
+        hotel=new Hotel();
+        hotel.setName("Hotel");
+        hotel.setCity("Pune");
+        hotel.setActive(true);
+        hotel.setOwner(owner);
+        entityManager.persist(hotel);
+
+        Room room=new Room();
+        room.setHotel(hotel);
+        room.setType("Deluxe");
+        room.setBasePrice(BigDecimal.valueOf(1000));
+        room.setTotalCount(5);
+        room.setCapacity(GUESTS_PER_BOOKING);
+        entityManager.persist(room);
+
+        // every guest has a user of its own, so a lazy user or roles load would show up once per guest
+        for(int i=0;i<BOOKING_COUNT;i++){
+            Set<Guest> guests=new HashSet<>();
+            for(int j=0;j<GUESTS_PER_BOOKING;j++){
+                Guest guest=new Guest();
+                guest.setName("Guest "+i+"-"+j);
+                guest.setUser(createUser("guest"+i+"-"+j+"@test.com",Role.GUEST));
+                entityManager.persist(guest);
+                guests.add(guest);
+            }
+            entityManager.persist(Booking.builder()
+                    .hotel(hotel).room(room).user(user)
+                    .roomsCount(1)
+                    .checkInDate(LocalDate.of(2030,5,1)).checkOutDate(LocalDate.of(2030,5,3))
+                    .bookingStatus(BookingStatus.CONFIRMED)
+                    .guests(guests)
+                    .amount(new BigDecimal("2000.00"))
+                    .build());
+        }
+    }
+
+    @Test
+    void everyPageOfUserBookingsRunsTwoSelects() {
+        assertEveryPageRunsTwoSelects((lastCreatedAt,lastId,pageRequest)->
+                bookingRepository.findIdsByUserIdBefore(user.getId(),lastCreatedAt,lastId,pageRequest));
+    }
+
+    @Test
+    void everyPageOfHotelBookingsRunsTwoSelects() {
+        assertEveryPageRunsTwoSelects((lastCreatedAt,lastId,pageRequest)->
+                bookingRepository.findIdsByHotelIdBefore(hotel.getId(),lastCreatedAt,lastId,pageRequest));
+    }
+
+    @Test
+    void expiryChunkReadsItsCitiesInOneSelect() {
+        List<Long> bookingIds=bookingRepository.findAll().stream().map(Booking::getId).toList();
+
+        // the lock and the cities the way BookingExpiryService.expireBookings reads them
+        Statistics statistics=resetStatistics();
+        List<Booking> bookings=bookingRepository.findAndLockBookings(bookingIds,Set.of(BookingStatus.CONFIRMED));
+        List<BookingRepository.BookingCity> cities=bookingRepository.findHotelCities(bookingIds);
+        bookings.forEach(booking->booking.getRoom().getId());
+
+        assertEquals(2,statistics.getPrepareStatementCount());
+        assertEquals(BOOKING_COUNT,cities.size());
+        cities.forEach(bookingCity->assertEquals("Pune",bookingCity.getCity()));
+    }
+
+    // Pages the way BookingServiceImpl.getBookingsPage does, mapping to BookingDto so every guest is touched
+    private void assertEveryPageRunsTwoSelects(BookingIdPageQuery idPageQuery){
+        LocalDateTime lastCreatedAt=LocalDateTime.of(9999,12,31,0,0);
+        Long lastId=Long.MAX_VALUE;
+        int bookingCount=0;
+        while(true){
+            Statistics statistics=resetStatistics();
+            List<Long> bookingIds=idPageQuery.find(lastCreatedAt,lastId,PageRequest.of(0,PAGE_SIZE));
+            if(bookingIds.isEmpty()) break;
+
+            List<Booking> bookings=bookingRepository.findWithGuestsByIdIn(bookingIds);
+            List<BookingDto> page=bookings.stream().map(booking->modelMapper.map(booking,BookingDto.class)).toList();
+
+            assertEquals(2,statistics.getPrepareStatementCount());
+            assertEquals(bookingIds.size(),page.size());
+            page.forEach(bookingDto->assertEquals(GUESTS_PER_BOOKING,bookingDto.getGuests().size()));
+            bookingCount+=page.size();
+            lastCreatedAt=bookings.getLast().getCreatedAt();
+            lastId=bookings.getLast().getId();
+        }
+        assertEquals(BOOKING_COUNT,bookingCount);
+    }
+
+    private User createUser(String email, Role role){
+        User newUser=new User();
+        newUser.setEmail(email);
+        newUser.setPassword("password");
+        newUser.setRoles(Set.of(role));
+        entityManager.persist(newUser);
+        return newUser;
+    }
+
+    @FunctionalInterface
+    private interface BookingIdPageQuery {
+        List<Long> find(LocalDateTime lastCreatedAt, Long lastId, PageRequest pageRequest);
+    }
+}
@@ -0,0 +1,77 @@
+package com.poharkar.project.airBnbApp.repository;
+
+import com.poharkar.project.airBnbApp.entity.Booking;
+import com.poharkar.project.airBnbApp.entity.Hotel;
+import com.poharkar.project.airBnbApp.entity.Room;
+import com.poharkar.project.airBnbApp.entity.User;
+import com.poharkar.project.airBnbApp.entity.enums.BookingStatus;
+import com.poharkar.project.airBnbApp.entity.enums.Role;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@EnabledIf(PostgresRepositoryTest.POSTGRES_AVAILABLE)
+class HotelDailyRevenueRepositoryTest extends PostgresRepositoryTest {
+
+    private static final LocalDate STALE_DATE=LocalDate.of(2020,1,1);
+
+    @Autowired
+    private HotelDailyRevenueRepository hotelDailyRevenueRepository;
+
+    private Hotel hotel;
+
+    @BeforeEach
+    void createBooking(){
+        User owner=new User();
+        owner.setEmail("owner@test.com");
+        owner.setPassword("password");
+        owner.setRoles(Set.of(Role.HOTEL_MANAGER));
+        entityManager.persist(owner);
+
+        hotel=new Hotel();
+        hotel.setName("Hotel");
+        hotel.setCity("Pune");
+        hotel.setActive(true);
+        hotel.setOwner(owner);
+        entityManager.persist(hotel);
+
+        Room room=new Room();
+        room.setHotel(hotel);
+        room.setType("Deluxe");
+        room.setBasePrice(BigDecimal.valueOf(1000));
+        room.setTotalCount(5);
+        room.setCapacity(2);
+        entityManager.persist(room);
+
+        entityManager.persist(Booking.builder()
+                .hotel(hotel).room(room).user(owner)
+                .roomsCount(1)
+                .checkInDate(LocalDate.of(2030,5,1)).checkOutDate(LocalDate.of(2030,5,3))
+                .bookingStatus(BookingStatus.CONFIRMED)
+                .amount(new BigDecimal("2000.00"))
+                .build());
+        entityManager.flush();
+    }
+
+    @Test
+    void rebuildDropsDaysWithoutBookings() {
+        // a day whose only booking was deleted since it was rolled up
+        hotelDailyRevenueRepository.addRevenue(hotel.getId(),STALE_DATE,1,new BigDecimal("500.00"),0);
+
+        hotelDailyRevenueRepository.lockHotelRevenue(hotel.getId());
+        hotelDailyRevenueRepository.deleteHotelRevenue(hotel.getId());
+        assertEquals(1,hotelDailyRevenueRepository.rebuildHotelRevenue(hotel.getId()));
+
+        HotelDailyRevenueRepository.RevenueTotals totals=hotelDailyRevenueRepository.sumRevenue(hotel.getId(),
+                STALE_DATE,LocalDate.now());
+        assertEquals(1L,totals.getConfirmedCount());
+        assertEquals(0,new BigDecimal("2000.00").compareTo(totals.getRevenue()));
+    }
+}
@@ -0,0 +1,197 @@
+package com.poharkar.project.airBnbApp.repository;
+
+import com.poharkar.project.airBnbApp.dto.HotelPriceDto;
+import com.poharkar.project.airBnbApp.entity.Hotel;
+import com.poharkar.project.airBnbApp.entity.HotelContactInfo;
+import com.poharkar.project.airBnbApp.entity.HotelMinPrice;
+import com.poharkar.project.airBnbApp.entity.User;
+import com.poharkar.project.airBnbApp.entity.enums.Role;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@EnabledIf(PostgresRepositoryTest.POSTGRES_AVAILABLE)
+class HotelMinPriceRepositoryTest extends PostgresRepositoryTest {
+
+    private static final String CITY="Pune";
+    private static final LocalDate START_DATE=LocalDate.of(2030,1,10);
+    private static final LocalDate END_DATE=START_DATE.plusDays(2);
+    private static final int HOTEL_COUNT=6;
+
+    private final JsonMapper jsonMapper=JsonMapper.builder().build();
+
+    @Autowired
+    private HotelMinPriceRepository hotelMinPriceRepository;
+
+    @BeforeEach
+    void createHotels(){
+        // one owner per hotel, so any lazy owner load would show up once per result
+        for(int i=0;i<HOTEL_COUNT;i++){
+            User owner=new User();
+            owner.setEmail("owner"+i+"@test.com");
+            owner.setPassword("password");
+            owner.setRoles(Set.of(Role.HOTEL_MANAGER));
+            entityManager.persist(owner);
+
+            HotelContactInfo contactInfo=new HotelContactInfo();
+            contactInfo.setAddress("Street "+i);
+            contactInfo.setEmail("hotel"+i+"@test.com");
+
+            Hotel hotel=new Hotel();
+            hotel.setName("Hotel "+i);
+            hotel.setCity(CITY);
+            hotel.setActive(true);
+            hotel.setRating(4.0);
+            hotel.setPhotos(new String[]{"photo"+i+"-1.jpg","photo"+i+"-2.jpg"});
+            hotel.setAmenities(new String[]{"wifi","pool"});
+            hotel.setContactInfo(contactInfo);
+            hotel.setOwner(owner);
+            entityManager.persist(hotel);
+
+            for(LocalDate date=START_DATE;!date.isAfter(END_DATE);date=date.plusDays(1)){
+                HotelMinPrice hotelMinPrice=new HotelMinPrice(hotel,date);
+                hotelMinPrice.setPrice(BigDecimal.valueOf(1000+100L*i));
+                entityManager.persist(hotelMinPrice);
+            }
+        }
+    }
+
+    @Test
+    void searchPageRunsOneSelectAndOneCount() {
+        Statistics statistics=resetStatistics();
+
+        Page<HotelPriceDto> page=hotelMinPriceRepository.findHotelsWithAvailableInventory(CITY,START_DATE,END_DATE,
+                1,3L,PageRequest.of(0,4));
+        String json=jsonMapper.writeValueAsString(page.getContent());
+
+        assertEquals(HOTEL_COUNT,page.getTotalElements());
+        assertEquals(4,page.getContent().size());
+        assertEquals(2,statistics.getPrepareStatementCount(),json);
+        assertEquals(0,statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void searchByCursorRunsOneSelect() {
+        Statistics statistics=resetStatistics();
+
+        List<HotelPriceDto> hotels=hotelMinPriceRepository.findHotelsWithPriceAfter(CITY,START_DATE,END_DATE,
+                BigDecimal.ONE.negate(),0L,PageRequest.of(0,HOTEL_COUNT+1));
+        String json=jsonMapper.writeValueAsString(hotels);
+
+        assertEquals(HOTEL_COUNT,hotels.size());
+        assertEquals(1,statistics.getPrepareStatementCount(),json);
+        assertEquals(0,statistics.getEntityLoadCount());
+        assertEquals("photo0-1.jpg",hotels.getFirst().getPhoto());
+        assertEquals(1000.0,hotels.getFirst().getPrice());
+    }
+
+    @Test
+    void searchMatchesTheCityIgnoringCase() {
+        List<HotelPriceDto> hotels=hotelMinPriceRepository.findHotelsWithPriceAfter("pune",START_DATE,END_DATE,
+                BigDecimal.ONE.negate(),0L,PageRequest.of(0,HOTEL_COUNT+1));
+
+        assertEquals(HOTEL_COUNT,hotels.size());
+        assertEquals(CITY,hotels.getFirst().getCity());
+    }
+
+    @Test
+    void deepCursorPageCostsTheSameAsTheFirst() {
+        String city="Mumbai";
+        int hotelsCount=400;
+        int pageSize=20;
+        User owner=new User();
+        owner.setEmail("owner@mumbai.test.com");
+        owner.setPassword("password");
+        owner.setRoles(Set.of(Role.HOTEL_MANAGER));
+        entityManager.persist(owner);
+        for(int i=0;i<hotelsCount;i++){
+            Hotel hotel=new Hotel();
+            hotel.setName("Mumbai "+i);
+            hotel.setCity(city);
+            hotel.setActive(true);
+            hotel.setOwner(owner);
+            entityManager.persist(hotel);
+            for(LocalDate date=START_DATE;!date.isAfter(END_DATE);date=date.plusDays(1)){
+                HotelMinPrice hotelMinPrice=new HotelMinPrice(hotel,date);
+                // equal prices for several hotels, so pages also break ties on the hotel id
+                hotelMinPrice.setPrice(BigDecimal.valueOf(1000+(i*37L)%150));
+                entityManager.persist(hotelMinPrice);
+            }
+        }
+
+        // walk every page, each one a single statement, together the whole city in (price, hotel id) order
+        List<HotelPriceDto> hotels=new ArrayList<>();
+        BigDecimal lastPrice=BigDecimal.ONE.negate();
+        Long lastHotelId=0L;
+        BigDecimal deepPrice=null;
+        Long deepHotelId=null;
+        Statistics statistics=resetStatistics();
+        for(int page=0;page<hotelsCount/pageSize;page++){
+            deepPrice=lastPrice;
+            deepHotelId=lastHotelId;
+            List<HotelPriceDto> pageHotels=hotelMinPriceRepository.findHotelsWithPriceAfter(city,START_DATE,END_DATE,
+                    lastPrice,lastHotelId,PageRequest.of(0,pageSize));
+            assertEquals(pageSize,pageHotels.size());
+            hotels.addAll(pageHotels);
+            lastPrice=BigDecimal.valueOf(pageHotels.getLast().getPrice()).setScale(2,RoundingMode.HALF_UP);
+            lastHotelId=pageHotels.getLast().getHotelId();
+        }
+        assertEquals(hotelsCount/pageSize,statistics.getPrepareStatementCount());
+        assertEquals(hotelsCount,hotels.stream().map(HotelPriceDto::getHotelId).distinct().count());
+        assertEquals(hotels.stream().sorted(Comparator.comparing(HotelPriceDto::getPrice)
+                .thenComparing(HotelPriceDto::getHotelId)).toList(),hotels);
+
+        // the last page aggregates the same rows as the first, so it takes about as long and not longer with depth
+        BigDecimal lastPagePrice=deepPrice;
+        Long lastPageHotelId=deepHotelId;
+        long firstPageNanos=medianNanos(()->hotelMinPriceRepository.findHotelsWithPriceAfter(city,START_DATE,END_DATE,
+                BigDecimal.ONE.negate(),0L,PageRequest.of(0,pageSize)));
+        long deepPageNanos=medianNanos(()->hotelMinPriceRepository.findHotelsWithPriceAfter(city,START_DATE,END_DATE,
+                lastPagePrice,lastPageHotelId,PageRequest.of(0,pageSize)));
+        assertTrue(deepPageNanos<=2*firstPageNanos+TimeUnit.MILLISECONDS.toNanos(5),
+                "page 1 took "+firstPageNanos+" ns, page "+hotelsCount/pageSize+" took "+deepPageNanos+" ns");
+    }
+
+    private static long medianNanos(Runnable query){
+        long[] nanos=new long[7];
+        for(int i=0;i<nanos.length;i++){
+            long startTime=System.nanoTime();
+            query.run();
+            nanos[i]=System.nanoTime()-startTime;
+        }
+        Arrays.sort(nanos);
+        return nanos[nanos.length/2];
+    }
+
+    @Test
+    void hotelWithoutPhotosHasNoPhoto() {
+        Hotel hotel=entityManager.getEntityManager()
+                .createQuery("SELECT h FROM Hotel h WHERE h.name = 'Hotel 0'",Hotel.class).getSingleResult();
+        hotel.setPhotos(null);
+        resetStatistics();
+
+        List<HotelPriceDto> hotels=hotelMinPriceRepository.findHotelsWithPriceAfter(CITY,START_DATE,END_DATE,
+                BigDecimal.ONE.negate(),0L,PageRequest.of(0,1));
+
+        assertNull(hotels.getFirst().getPhoto());
+    }
+}
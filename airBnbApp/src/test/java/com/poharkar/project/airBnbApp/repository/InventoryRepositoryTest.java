@@ -0,0 +1,131 @@
+package com.poharkar.project.airBnbApp.repository;
+
+import com.poharkar.project.airBnbApp.entity.Hotel;
+import com.poharkar.project.airBnbApp.entity.Inventory;
+import com.poharkar.project.airBnbApp.entity.Room;
+import com.poharkar.project.airBnbApp.entity.User;
+import com.poharkar.project.airBnbApp.entity.enums.Role;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@EnabledIf(PostgresRepositoryTest.POSTGRES_AVAILABLE)
+class InventoryRepositoryTest extends PostgresRepositoryTest {
+
+    private static final LocalDate START_DATE=LocalDate.of(2030,3,1);
+    private static final LocalDate END_DATE=START_DATE.plusDays(3);
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    private Hotel hotel;
+    private Room room;
+
+    @BeforeEach
+    void createInventory(){
+        User owner=new User();
+        owner.setEmail("owner@test.com");
+        owner.setPassword("password");
+        owner.setRoles(Set.of(Role.HOTEL_MANAGER));
+        entityManager.persist(owner);
+
+        hotel=new Hotel();
+        hotel.setName("Hotel");
+        hotel.setCity("Pune");
+        hotel.setActive(true);
+        hotel.setOwner(owner);
+        entityManager.persist(hotel);
+
+        room=new Room();
+        room.setHotel(hotel);
+        room.setType("Deluxe");
+        room.setBasePrice(BigDecimal.valueOf(1000));
+        room.setTotalCount(5);
+        room.setCapacity(2);
+        entityManager.persist(room);
+
+        for(LocalDate date=START_DATE;!date.isAfter(END_DATE);date=date.plusDays(1)){
+            entityManager.persist(Inventory.builder()
+                    .hotel(hotel).room(room).date(date)
+                    .bookedCount(1).reservedCount(0).totalCount(5)
+                    .surgeFactor(BigDecimal.ONE).price(new BigDecimal("1000.00"))
+                    .city("Pune").closed(false)
+                    .build());
+        }
+    }
+
+    @Test
+    void updatePricesKeepsCountsWrittenAfterTheInventoryWasRead() {
+        resetStatistics();
+        List<Inventory> inventoryList=inventoryRepository.findByHotelAndDateBetween(hotel,START_DATE,END_DATE);
+        inventoryList.forEach(inventory->inventory.setPrice(new BigDecimal("1250.00")));
+        inventoryList.getFirst().setPrice(new BigDecimal("1000.00"));
+
+        // a booking confirmed while the hotel is being repriced
+        inventoryRepository.initBooking(room.getId(),START_DATE,END_DATE,2);
+        inventoryRepository.confirmBooking(room.getId(),START_DATE,END_DATE,2);
+
+        Statistics statistics=resetStatistics();
+        int updatedCount=inventoryRepository.updatePrices(
+                inventoryList.stream().map(Inventory::getId).toArray(Long[]::new),
+                inventoryList.stream().map(Inventory::getPrice).toArray(BigDecimal[]::new));
+        entityManager.flush();
+
+        assertEquals(1,statistics.getPrepareStatementCount());
+        // the first night kept its price and is not rewritten
+        assertEquals(3,updatedCount);
+
+        entityManager.clear();
+        for(Inventory inventory: inventoryRepository.findByHotelAndDateBetween(hotel,START_DATE,END_DATE)){
+            assertEquals(3,inventory.getBookedCount());
+            assertEquals(0,inventory.getReservedCount());
+            BigDecimal expectedPrice=inventory.getDate().equals(START_DATE)? new BigDecimal("1000.00") : new BigDecimal("1250.00");
+            assertEquals(expectedPrice,inventory.getPrice());
+        }
+    }
+
+    @Test
+    void unchangedUnroundedPricesAreNotRewritten() {
+        List<Inventory> inventoryList=inventoryRepository.findByHotelAndDateBetween(hotel,START_DATE,END_DATE);
+        Long[] ids=inventoryList.stream().map(Inventory::getId).toArray(Long[]::new);
+        // 123.45 x 1.15 as the pricing pipeline returns it, the column stores 141.97
+        BigDecimal[] prices=inventoryList.stream().map(inventory->new BigDecimal("141.9675")).toArray(BigDecimal[]::new);
+
+        assertEquals(4,inventoryRepository.updatePrices(ids,prices));
+        entityManager.flush();
+        entityManager.clear();
+
+        // the second reprice with the same inputs
+        assertEquals(0,inventoryRepository.updatePrices(ids,prices));
+
+        entityManager.clear();
+        for(Inventory inventory: inventoryRepository.findByHotelAndDateBetween(hotel,START_DATE,END_DATE)){
+            assertEquals(new BigDecimal("141.97"),inventory.getPrice());
+        }
+    }
+
+    @Test
+    void horizonStartsAfterTheLastInventoryOfTheHotel() {
+        resetStatistics();
+        List<InventoryRepository.HorizonStart> horizonStarts=inventoryRepository.findInventoryHorizonStarts(
+                hotel.getId(),hotel.getId(),START_DATE);
+
+        assertEquals(1,horizonStarts.size());
+        assertEquals(hotel.getId(),horizonStarts.getFirst().getHotelId());
+        assertEquals(END_DATE.plusDays(1),horizonStarts.getFirst().getFirstNewDate());
+
+        // a horizon starting after the last row starts at the horizon's own start
+        LocalDate laterStartDate=END_DATE.plusDays(10);
+        assertEquals(laterStartDate,inventoryRepository.findInventoryHorizonStarts(hotel.getId(),hotel.getId(),laterStartDate)
+                .getFirst().getFirstNewDate());
+    }
+}
@@ -0,0 +1,162 @@
+package com.poharkar.project.airBnbApp.repository;
+
+import com.poharkar.project.airBnbApp.entity.Hotel;
+import com.poharkar.project.airBnbApp.entity.Inventory;
+import com.poharkar.project.airBnbApp.entity.Room;
+import com.poharkar.project.airBnbApp.entity.User;
+import com.poharkar.project.airBnbApp.entity.enums.ReservationMode;
+import com.poharkar.project.airBnbApp.entity.enums.Role;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Booking transactions racing for the last rooms of one room type. Every thread commits its own transaction,
+// so the test data is committed too and deleted again afterwards.
+@EnabledIf(PostgresRepositoryTest.POSTGRES_AVAILABLE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InventoryReservationConcurrencyTest extends PostgresRepositoryTest {
+
+    private static final LocalDate START_DATE=LocalDate.of(2031,3,1);
+    private static final LocalDate END_DATE=START_DATE.plusDays(3);
+    private static final long NIGHTS=ChronoUnit.DAYS.between(START_DATE,END_DATE)+1;
+    // one room fewer is free on this night, so some bookings get the other nights and must roll them back
+    private static final LocalDate SOLD_OUT_DATE=START_DATE.plusDays(2);
+    private static final int FREE_ROOMS=4;
+    private static final int THREADS=12;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Long ownerId;
+    private Long hotelId;
+    private Long roomId;
+
+    @BeforeEach
+    void createInventory(){
+        transactionTemplate=new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status->{
+            User owner=new User();
+            owner.setEmail("concurrency-owner@test.com");
+            owner.setPassword("password");
+            owner.setRoles(Set.of(Role.HOTEL_MANAGER));
+            entityManager.persist(owner);
+
+            Hotel hotel=new Hotel();
+            hotel.setName("Hotel");
+            hotel.setCity("Nashik");
+            hotel.setActive(true);
+            hotel.setOwner(owner);
+            entityManager.persist(hotel);
+
+            Room room=new Room();
+            room.setHotel(hotel);
+            room.setType("Deluxe");
+            room.setBasePrice(BigDecimal.valueOf(1000));
+            room.setTotalCount(FREE_ROOMS);
+            room.setCapacity(2);
+            entityManager.persist(room);
+
+            for(LocalDate date=START_DATE;!date.isAfter(END_DATE);date=date.plusDays(1)){
+                entityManager.persist(Inventory.builder()
+                        .hotel(hotel).room(room).date(date)
+                        .bookedCount(date.equals(SOLD_OUT_DATE)? 1 : 0).reservedCount(0).totalCount(FREE_ROOMS)
+                        .surgeFactor(BigDecimal.ONE).price(new BigDecimal("1000.00"))
+                        .city("Nashik").closed(false)
+                        .build());
+            }
+            ownerId=owner.getId();
+            hotelId=hotel.getId();
+            roomId=room.getId();
+        });
+    }
+
+    @AfterEach
+    void deleteInventory(){
+        transactionTemplate.executeWithoutResult(status->{
+            EntityManager em=entityManager.getEntityManager();
+            em.createQuery("DELETE FROM Inventory i WHERE i.room.id = :roomId").setParameter("roomId",roomId).executeUpdate();
+            em.remove(em.find(Room.class,roomId));
+            em.remove(em.find(Hotel.class,hotelId));
+            em.remove(em.find(User.class,ownerId));
+        });
+    }
+
+    @ParameterizedTest
+    @EnumSource(ReservationMode.class)
+    void concurrentBookingsNeverOverbookTheRoom(ReservationMode reservationMode) throws Exception {
+        CountDownLatch start=new CountDownLatch(1);
+        ExecutorService executor=Executors.newFixedThreadPool(THREADS);
+        List<Future<Boolean>> results=new ArrayList<>();
+        for(int i=0;i<THREADS;i++){
+            results.add(executor.submit(()->{
+                start.await();
+                return reserve(reservationMode);
+            }));
+        }
+        start.countDown();
+
+        // a lock timeout, deadlock or serialisation failure would be rethrown here and fail the test
+        int reservedCount=0;
+        for(Future<Boolean> result: results){
+            reservedCount+=result.get()? 1 : 0;
+        }
+        executor.shutdown();
+
+        assertEquals(FREE_ROOMS-1,reservedCount);
+        List<Inventory> inventoryList=transactionTemplate.execute(status->
+                inventoryRepository.findByRoomIdAndDateBetween(roomId,START_DATE,END_DATE));
+        assertEquals(NIGHTS,inventoryList.size());
+        for(Inventory inventory: inventoryList){
+            // the nights with a room left over only hold the bookings that got every night
+            assertEquals(FREE_ROOMS-1,inventory.getReservedCount());
+        }
+    }
+
+    // One booking transaction the way BookingServiceImpl reserves in the given mode. A booking that loses the race
+    // waits for the row lock, Postgres then re-checks the free count on the committed row and the booking fails
+    // with the shortfall, there is nothing to retry. Returns false when it rolled back on a sold out night.
+    private boolean reserve(ReservationMode reservationMode){
+        try{
+            transactionTemplate.executeWithoutResult(status->{
+                if(reservationMode==ReservationMode.PESSIMISTIC){
+                    List<Inventory> inventoryList=inventoryRepository.findAndLockAvailableInventory(roomId,
+                            START_DATE,END_DATE,1);
+                    if(inventoryList.size()!=NIGHTS){
+                        throw new IllegalStateException("Room is not available anymore");
+                    }
+                    inventoryRepository.initBooking(roomId,START_DATE,END_DATE,1);
+                }else if(inventoryRepository.initBooking(roomId,START_DATE,END_DATE,1)!=NIGHTS){
+                    throw new IllegalStateException("Room is not available anymore");
+                }
+            });
+            return true;
+        }catch (IllegalStateException e){
+            return false;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.poharkar.project.airBnbApp.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+// Repository tests that count statements, so they need the real Postgres queries and TEXT[] columns rather than H2.
+// Runs against -Dtest.postgres.url when it is set, otherwise against a container.
+// Subclasses add @EnabledIf(POSTGRES_AVAILABLE), which is not inherited, to be skipped without either.
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+abstract class PostgresRepositoryTest {
+
+    static final String POSTGRES_AVAILABLE="com.poharkar.project.airBnbApp.repository.PostgresRepositoryTest#isPostgresAvailable";
+
+    private static final String POSTGRES_URL=System.getProperty("test.postgres.url");
+
+    private static PostgreSQLContainer postgres;
+
+    @Autowired
+    protected TestEntityManager entityManager;
+
+    static boolean isPostgresAvailable(){
+        return POSTGRES_URL!=null || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry){
+        if(POSTGRES_URL!=null){
+            registry.add("spring.datasource.url",()->POSTGRES_URL);
+            registry.add("spring.datasource.username",()->System.getProperty("test.postgres.username","postgres"));
+            registry.add("spring.datasource.password",()->System.getProperty("test.postgres.password",""));
+            return;
+        }
+        synchronized (PostgresRepositoryTest.class){
+            if(postgres==null){
+                postgres=new PostgreSQLContainer("postgres:16-alpine");
+                postgres.start();
+            }
+        }
+        registry.add("spring.datasource.url",postgres::getJdbcUrl);
+        registry.add("spring.datasource.username",postgres::getUsername);
+        registry.add("spring.datasource.password",postgres::getPassword);
+    }
+
+    // Flushes and detaches the test data, then starts counting from zero
+    protected Statistics resetStatistics(){
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics=entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
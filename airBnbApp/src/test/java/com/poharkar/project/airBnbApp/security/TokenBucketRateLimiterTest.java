@@ -0,0 +1,89 @@
+package com.poharkar.project.airBnbApp.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketRateLimiterTest {
+
+    private final AtomicLong now=new AtomicLong();
+
+    @Test
+    void allowsTheCapacityThenRefillsOverTime() {
+        TokenBucketRateLimiter rateLimiter=new TokenBucketRateLimiter(3,2,now::get);
+
+        for(int i=0;i<3;i++){
+            assertEquals(0,rateLimiter.tryAcquire("10.0.0.1"));
+        }
+        // two tokens per second, the next one is 500 ms away
+        assertEquals(500,rateLimiter.tryAcquire("10.0.0.1"));
+
+        now.addAndGet(499);
+        assertTrue(rateLimiter.tryAcquire("10.0.0.1")>0);
+        now.addAndGet(1);
+        assertEquals(0,rateLimiter.tryAcquire("10.0.0.1"));
+    }
+
+    @Test
+    void keepsFractionsOfTokensBetweenRequests() {
+        TokenBucketRateLimiter rateLimiter=new TokenBucketRateLimiter(1,0.0005,now::get);
+        assertEquals(0,rateLimiter.tryAcquire("user"));
+
+        // 0.0005 tokens per second is less than a thousandth of a token per millisecond
+        for(int i=0;i<1999;i++){
+            now.incrementAndGet();
+            assertTrue(rateLimiter.tryAcquire("user")>0);
+        }
+        now.addAndGet(2_000_000-1999);
+        assertEquals(0,rateLimiter.tryAcquire("user"));
+    }
+
+    @Test
+    void bucketsAreIndependentPerKey() {
+        TokenBucketRateLimiter rateLimiter=new TokenBucketRateLimiter(1,1,now::get);
+        assertEquals(0,rateLimiter.tryAcquire("10.0.0.1"));
+        assertTrue(rateLimiter.tryAcquire("10.0.0.1")>0);
+        assertEquals(0,rateLimiter.tryAcquire("10.0.0.2"));
+    }
+
+    @Test
+    void evictsOnlyBucketsThatAreFullAgain() {
+        TokenBucketRateLimiter rateLimiter=new TokenBucketRateLimiter(10,5,now::get);
+        rateLimiter.tryAcquire("idle");
+        now.addAndGet(1000);
+        rateLimiter.tryAcquire("busy");
+
+        // 10 tokens at 5 per second are refilled after 2 seconds
+        now.addAndGet(1000);
+        assertEquals(1,rateLimiter.evictIdleBuckets());
+        assertEquals(1,rateLimiter.size());
+    }
+
+    @Test
+    void concurrentRequestsNeverTakeMoreThanTheCapacity() throws InterruptedException {
+        TokenBucketRateLimiter rateLimiter=new TokenBucketRateLimiter(1000,1,now::get);
+        AtomicInteger acquiredCount=new AtomicInteger();
+
+        try(ExecutorService executor=Executors.newFixedThreadPool(8)){
+            for(int thread=0;thread<8;thread++){
+                executor.submit(()->{
+                    for(int i=0;i<1000;i++){
+                        if(rateLimiter.tryAcquire("10.0.0.1")==0){
+                            acquiredCount.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10,TimeUnit.SECONDS));
+        }
+        assertEquals(1000,acquiredCount.get());
+    }
+}
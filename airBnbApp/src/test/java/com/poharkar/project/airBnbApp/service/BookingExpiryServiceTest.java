@@ -0,0 +1,89 @@
+package com.poharkar.project.airBnbApp.service;
+
+import com.poharkar.project.airBnbApp.entity.Booking;
+import com.poharkar.project.airBnbApp.entity.Room;
+import com.poharkar.project.airBnbApp.entity.enums.BookingStatus;
+import com.poharkar.project.airBnbApp.repository.BookingRepository;
+import com.poharkar.project.airBnbApp.repository.InventoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.poharkar.project.airBnbApp.service.BookingExpiryService.EXPIRABLE_STATUSES;
+import static com.poharkar.project.airBnbApp.service.BookingExpiryService.PAYMENT_PENDING_STATUSES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingExpiryServiceTest {
+
+    private final BookingRepository bookingRepository=mock(BookingRepository.class);
+    private final InventoryRepository inventoryRepository=mock(InventoryRepository.class);
+    private final BookingExpiryService bookingExpiryService=new BookingExpiryService(bookingRepository,inventoryRepository,
+            mock(InventoryLedger.class),mock(HotelAvailabilityIndex.class),
+            new TransactionTemplate(mock(PlatformTransactionManager.class)),new SimpleMeterRegistry());
+
+    @BeforeEach
+    void setChunkSize(){
+        ReflectionTestUtils.setField(bookingExpiryService,"chunkSize",500);
+    }
+
+    @Test
+    void abandonedCheckoutIsExpiredAfterItsSessionExpired() {
+        Booking booking=booking(7L,BookingStatus.PAYMENT_PENDING);
+        when(bookingRepository.findExpiredBookings(eq(PAYMENT_PENDING_STATUSES),any(),any(),any(),any()))
+                .thenReturn(List.of(booking));
+        when(bookingRepository.findAndLockBookings(List.of(7L),PAYMENT_PENDING_STATUSES)).thenReturn(List.of(booking));
+
+        LocalDateTime sweepStart=LocalDateTime.now();
+        bookingExpiryService.sweepExpiredBookings();
+
+        verify(inventoryRepository).releaseReservedInventory(List.of(7L));
+        verify(bookingRepository).updateBookingStatus(List.of(7L),BookingStatus.EXPIRED);
+
+        // held bookings expire after the hold, a started checkout only once its Stripe session can no longer be paid
+        ArgumentCaptor<LocalDateTime> heldBefore=ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> pendingBefore=ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(bookingRepository).findExpiredBookings(eq(EXPIRABLE_STATUSES),heldBefore.capture(),any(),any(),any());
+        verify(bookingRepository).findExpiredBookings(eq(PAYMENT_PENDING_STATUSES),pendingBefore.capture(),any(),any(),any());
+        assertEquals(BookingServiceImpl.PAYMENT_SESSION_MINUTES,
+                Duration.between(pendingBefore.getValue(),heldBefore.getValue()).toMinutes());
+        assertFalse(pendingBefore.getValue().isBefore(sweepStart.minusMinutes(BookingServiceImpl.BOOKING_HOLD_MINUTES
+                +BookingServiceImpl.PAYMENT_SESSION_MINUTES+BookingServiceImpl.BOOKING_HOLD_GRACE_MINUTES)));
+    }
+
+    @Test
+    void holdExpiryLeavesAStartedCheckoutAlone() {
+        // the hold wheel expires by id, a booking that moved to PAYMENT_PENDING meanwhile is no longer on hold
+        when(bookingRepository.findAndLockBookings(List.of(7L),EXPIRABLE_STATUSES)).thenReturn(List.of());
+
+        assertEquals(0,bookingExpiryService.expireBookings(List.of(7L)));
+        verify(bookingRepository).findAndLockBookings(List.of(7L),EXPIRABLE_STATUSES);
+    }
+
+    private Booking booking(Long id, BookingStatus bookingStatus){
+        Room room=new Room();
+        room.setId(100L);
+        Booking booking=Booking.builder()
+                .room(room)
+                .roomsCount(1)
+                .checkInDate(LocalDate.of(2030,5,1)).checkOutDate(LocalDate.of(2030,5,3))
+                .bookingStatus(bookingStatus)
+                .build();
+        booking.setId(id);
+        return booking;
+    }
+}
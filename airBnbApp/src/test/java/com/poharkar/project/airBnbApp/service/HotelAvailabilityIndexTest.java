@@ -0,0 +1,61 @@
+package com.poharkar.project.airBnbApp.service;
+
+import com.poharkar.project.airBnbApp.dto.InventoryAvailabilityDto;
+import com.poharkar.project.airBnbApp.repository.InventoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HotelAvailabilityIndexTest {
+
+    private static final LocalDate DATE=LocalDate.of(2030,6,1);
+
+    private final InventoryRepository inventoryRepository=mock(InventoryRepository.class);
+    private final HotelAvailabilityIndex hotelAvailabilityIndex=new HotelAvailabilityIndex(inventoryRepository,
+            new HotelSearchCache(false,1,1,new SimpleMeterRegistry()),mock(PlatformTransactionManager.class));
+
+    @BeforeEach
+    void enableIndex(){
+        ReflectionTestUtils.setField(hotelAvailabilityIndex,"enabled",true);
+        ReflectionTestUtils.setField(hotelAvailabilityIndex,"maxRooms",8);
+    }
+
+    @Test
+    void bookingDuringARebuildIsNotLost() {
+        // the rebuild reads the last free room, then the room is booked before the new index is in place
+        when(inventoryRepository.findAvailabilityByCity(eq("pune"),any())).thenAnswer(invocation->{
+            hotelAvailabilityIndex.refreshAfterCommit("Pune",10L,DATE,DATE);
+            return List.of(new InventoryAvailabilityDto(10L,1L,DATE,1,false));
+        });
+        when(inventoryRepository.findAvailabilityByRoom(10L,DATE,DATE))
+                .thenReturn(List.of(new InventoryAvailabilityDto(10L,1L,DATE,0,false)));
+
+        hotelAvailabilityIndex.rebuildCity("Pune",DATE);
+
+        assertEquals(Set.of(),hotelAvailabilityIndex.findAvailableHotels("Pune",DATE,DATE,1));
+    }
+
+    @Test
+    void roomRemovedDuringARebuildStaysRemoved() {
+        when(inventoryRepository.findAvailabilityByCity(eq("pune"),any())).thenAnswer(invocation->{
+            hotelAvailabilityIndex.removeRoomAfterCommit("Pune",10L);
+            return List.of(new InventoryAvailabilityDto(10L,1L,DATE,3,false));
+        });
+
+        hotelAvailabilityIndex.rebuildCity("Pune",DATE);
+
+        assertEquals(Set.of(),hotelAvailabilityIndex.findAvailableHotels("pune",DATE,DATE,1));
+    }
+}
@@ -0,0 +1,47 @@
+package com.poharkar.project.airBnbApp.service;
+
+import com.poharkar.project.airBnbApp.dto.HotelPriceDto;
+import com.poharkar.project.airBnbApp.dto.HotelSearchRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HotelSearchCacheTest {
+
+    private final HotelSearchCache hotelSearchCache=new HotelSearchCache(true,100,300,new SimpleMeterRegistry());
+    private final AtomicInteger searchCount=new AtomicInteger();
+
+    @Test
+    void spellingsOfOneCityShareTheirPages() {
+        search("Pune");
+        search("pune");
+        search(" PUNE ");
+
+        assertEquals(1,searchCount.get());
+    }
+
+    @Test
+    void evictingOneSpellingEvictsTheOthers() {
+        search("pune");
+        hotelSearchCache.evictCity("Pune");
+        search(" Pune");
+
+        assertEquals(2,searchCount.get());
+    }
+
+    private void search(String city){
+        HotelSearchRequest hotelSearchRequest=new HotelSearchRequest();
+        hotelSearchRequest.setCity(city);
+        hotelSearchRequest.setStartDate(LocalDate.of(2030,1,10));
+        hotelSearchRequest.setEndDate(LocalDate.of(2030,1,12));
+        hotelSearchCache.get(hotelSearchRequest,()->{
+            searchCount.incrementAndGet();
+            return Page.<HotelPriceDto>empty();
+        });
+    }
+}
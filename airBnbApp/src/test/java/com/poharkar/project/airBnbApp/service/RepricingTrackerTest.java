@@ -0,0 +1,49 @@
+package com.poharkar.project.airBnbApp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RepricingTrackerTest {
+
+    private final RepricingTracker repricingTracker=new RepricingTracker();
+
+    @Test
+    void distantChangesStayTwoRuns() {
+        repricingTracker.markDirty(1L,LocalDate.of(2030,12,20),LocalDate.of(2030,12,22));
+        repricingTracker.markDirty(1L,LocalDate.of(2030,1,5),LocalDate.of(2030,1,6));
+        repricingTracker.markDirty(1L,LocalDate.of(2030,1,7),LocalDate.of(2030,1,7));
+
+        RepricingTracker.DirtyDates dirtyDates=repricingTracker.drain().get(1L);
+
+        assertEquals(6,dirtyDates.size());
+        assertEquals(List.of(
+                new RepricingTracker.DirtyRange(LocalDate.of(2030,1,5),LocalDate.of(2030,1,7)),
+                new RepricingTracker.DirtyRange(LocalDate.of(2030,12,20),LocalDate.of(2030,12,22))),
+                dirtyDates.runs(LocalDate.of(2030,1,1),LocalDate.of(2031,1,1)));
+    }
+
+    @Test
+    void runsAreClippedToTheRequestedDates() {
+        repricingTracker.markDirty(1L,LocalDate.of(2030,1,1),LocalDate.of(2030,1,10));
+
+        RepricingTracker.DirtyDates dirtyDates=repricingTracker.drain().get(1L);
+
+        assertEquals(List.of(new RepricingTracker.DirtyRange(LocalDate.of(2030,1,4),LocalDate.of(2030,1,6))),
+                dirtyDates.runs(LocalDate.of(2030,1,4),LocalDate.of(2030,1,6)));
+        assertTrue(dirtyDates.runs(LocalDate.of(2030,2,1),LocalDate.of(2030,3,1)).isEmpty());
+    }
+
+    @Test
+    void drainEmptiesTheTracker() {
+        repricingTracker.markDirty(1L,LocalDate.of(2030,1,1),LocalDate.of(2030,1,1));
+        repricingTracker.markDirty(2L,LocalDate.of(2030,1,1),LocalDate.of(2030,1,1));
+
+        assertEquals(2,repricingTracker.drain().size());
+        assertEquals(0,repricingTracker.size());
+    }
+}
@@ -0,0 +1,79 @@
+package com.poharkar.project.airBnbApp.strategy;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HolidayCalendarTest {
+
+    @Test
+    void holidaysApplyToTheirCityAndDate() {
+        HolidayCalendar calendar=HolidayCalendar.parse(List.of(
+                "# comment",
+                "*,2026-12-25",
+                "Goa,2026-12-31",
+                "Goa,2027-01-01"));
+
+        assertTrue(calendar.isHoliday("Goa",LocalDate.of(2026,12,25)));
+        assertTrue(calendar.isHoliday("Pune",LocalDate.of(2026,12,25)));
+        assertTrue(calendar.isHoliday("Goa",LocalDate.of(2026,12,31)));
+        assertTrue(calendar.isHoliday("Goa",LocalDate.of(2027,1,1)));
+        assertFalse(calendar.isHoliday("Pune",LocalDate.of(2026,12,31)));
+        assertFalse(calendar.isHoliday("Goa",LocalDate.of(2025,12,25)));
+        assertFalse(HolidayCalendar.EMPTY.isHoliday("Goa",LocalDate.of(2026,12,25)));
+    }
+
+    @Test
+    void citiesMatchIgnoringCase() {
+        HolidayCalendar calendar=HolidayCalendar.parse(List.of(
+                "goa,2026-12-31",
+                " GOA ,2027-01-01"));
+
+        assertTrue(calendar.isHoliday("Goa",LocalDate.of(2026,12,31)));
+        assertTrue(calendar.isHoliday("GOA",LocalDate.of(2026,12,31)));
+        assertTrue(calendar.isHoliday("goa",LocalDate.of(2027,1,1)));
+        assertTrue(calendar.isHoliday("Goa",LocalDate.of(2027,1,1)));
+    }
+
+    @Test
+    void cityWithoutHolidaysFallsBackToAllCities() {
+        HolidayCalendar calendar=HolidayCalendar.parse(List.of(
+                "*,2026-08-15",
+                "Goa,2026-12-31"));
+
+        assertTrue(calendar.isHoliday("Mumbai",LocalDate.of(2026,8,15)));
+        assertTrue(calendar.isHoliday(null,LocalDate.of(2026,8,15)));
+        assertFalse(calendar.isHoliday("Mumbai",LocalDate.of(2026,12,31)));
+    }
+
+    @Test
+    void fingerprintChangesWithTheHolidaysOnly() {
+        HolidayCalendar calendar=HolidayCalendar.parse(List.of(
+                "*,2026-08-15",
+                "Goa,2026-12-31"));
+        HolidayCalendar reordered=HolidayCalendar.parse(List.of(
+                "# reordered",
+                " GOA ,2026-12-31",
+                "*,2026-08-15"));
+        HolidayCalendar moved=HolidayCalendar.parse(List.of(
+                "*,2026-08-15",
+                "Goa,2027-01-01"));
+
+        assertEquals(calendar.getFingerprint(),reordered.getFingerprint());
+        assertNotEquals(calendar.getFingerprint(),moved.getFingerprint());
+        assertEquals(HolidayCalendar.EMPTY.getFingerprint(),HolidayCalendar.parse(List.of("# none")).getFingerprint());
+    }
+
+    @Test
+    void rejectsMalformedLines() {
+        assertThrows(IllegalArgumentException.class,()->HolidayCalendar.parse(List.of("Goa")));
+        assertThrows(RuntimeException.class,()->HolidayCalendar.parse(List.of("Goa,31-12-2026")));
+    }
+}
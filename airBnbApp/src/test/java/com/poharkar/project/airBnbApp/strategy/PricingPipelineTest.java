@@ -0,0 +1,94 @@
+package com.poharkar.project.airBnbApp.strategy;
+
+import com.poharkar.project.airBnbApp.entity.Inventory;
+import com.poharkar.project.airBnbApp.entity.Room;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PricingPipelineTest {
+
+    private static final List<String> CITIES=List.of("Mumbai","Pune","Goa");
+
+    private final Random random=new Random(42);
+    private final HolidayCalendar holidayCalendar=HolidayCalendar.parse(holidayLines());
+
+    @Test
+    void pricesMatchTheStrategyChain() {
+        LocalDate today=LocalDate.now();
+        PricingPipeline pricingPipeline=new PricingPipeline(today,holidayCalendar);
+
+        for(int i=0;i<10_000;i++){
+            Inventory inventory=randomInventory(today,
+                    BigDecimal.valueOf(random.nextInt(1_000_000),random.nextInt(4)),
+                    BigDecimal.valueOf(50+random.nextInt(300),2));
+            // equals also compares the scale
+            assertEquals(strategyChainPrice(inventory),pricingPipeline.calculatePrice(inventory));
+        }
+    }
+
+    @Test
+    void pricesThatOverflowLongMatchTheStrategyChain() {
+        LocalDate today=LocalDate.now();
+        PricingPipeline pricingPipeline=new PricingPipeline(today,holidayCalendar);
+
+        Inventory inventory=randomInventory(today,new BigDecimal("922337203685477580.7"),new BigDecimal("3.50"));
+        assertEquals(strategyChainPrice(inventory),pricingPipeline.calculatePrice(inventory));
+    }
+
+    @Test
+    void totalPriceMatchesTheStrategyChain() {
+        LocalDate today=LocalDate.now();
+        List<Inventory> inventoryList=new ArrayList<>();
+        BigDecimal expectedTotal=BigDecimal.ZERO;
+        for(int i=0;i<30;i++){
+            Inventory inventory=randomInventory(today,new BigDecimal("2499.99"),new BigDecimal("1.10"));
+            inventoryList.add(inventory);
+            expectedTotal=expectedTotal.add(strategyChainPrice(inventory));
+        }
+
+        assertEquals(expectedTotal,new PricingPipeline(today,holidayCalendar).calculateTotalPrice(inventoryList));
+    }
+
+    private List<String> holidayLines(){
+        // every third day from a week ago for one city, every tenth day for all cities
+        LocalDate today=LocalDate.now();
+        List<String> lines=new ArrayList<>();
+        for(int day=-7;day<20;day++){
+            if(day%3==0) lines.add("Mumbai,"+today.plusDays(day));
+            if(day%10==0) lines.add("*,"+today.plusDays(day));
+        }
+        return lines;
+    }
+
+    private BigDecimal strategyChainPrice(Inventory inventory){
+        PricingStrategy pricingStrategy=new BasePricingStrategy();
+        pricingStrategy=new SurgePricingStrategy(pricingStrategy);
+        pricingStrategy=new OccupancyPricingStrategy(pricingStrategy);
+        pricingStrategy=new UrgencyPricingStrategy(pricingStrategy);
+        pricingStrategy=new HolidayPricingStrategy(pricingStrategy,holidayCalendar);
+        return pricingStrategy.calculatePrice(inventory);
+    }
+
+    private Inventory randomInventory(LocalDate today, BigDecimal basePrice, BigDecimal surgeFactor){
+        Room room=new Room();
+        room.setBasePrice(basePrice);
+
+        int totalCount=1+random.nextInt(10);
+        return Inventory.builder()
+                .room(room)
+                .city(CITIES.get(random.nextInt(CITIES.size())))
+                .date(today.plusDays(random.nextInt(20)-5))
+                .totalCount(totalCount)
+                .bookedCount(random.nextInt(totalCount+1))
+                .reservedCount(0)
+                .surgeFactor(surgeFactor)
+                .build();
+    }
+}